@@ -0,0 +1,53 @@
+package org.jsoup.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.safety.Whitelist;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cleans the body of an article from the corpus with each of the built-in whitelists.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CleanBenchmark {
+    @Param({"smh-biz-article-1.html"})
+    public String file;
+
+    @Param({"none", "simpleText", "basic", "basicWithImages", "relaxed"})
+    public String whitelist;
+
+    private String bodyHtml;
+    private Whitelist wl;
+
+    @Setup
+    public void setup() throws IOException {
+        bodyHtml = Corpus.document(file).body().html();
+        wl = whitelist(whitelist);
+    }
+
+    @Benchmark
+    public String clean() {
+        return Jsoup.clean(bodyHtml, Corpus.baseUri, wl);
+    }
+
+    static Whitelist whitelist(String name) {
+        if (name.equals("none"))
+            return Whitelist.none();
+        else if (name.equals("simpleText"))
+            return Whitelist.simpleText();
+        else if (name.equals("basic"))
+            return Whitelist.basic();
+        else if (name.equals("basicWithImages"))
+            return Whitelist.basicWithImages();
+        else if (name.equals("relaxed"))
+            return Whitelist.relaxed();
+        throw new IllegalArgumentException("Unknown whitelist " + name);
+    }
+}
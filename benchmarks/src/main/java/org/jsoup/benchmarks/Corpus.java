@@ -0,0 +1,46 @@
+package org.jsoup.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads documents from the parse corpus (the jsoup test resources in {@code htmltests}), which are bundled into the
+ * benchmark jar.
+ */
+final class Corpus {
+    static final String baseUri = "http://example.com/";
+
+    private Corpus() {}
+
+    static byte[] bytes(String file) throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream("/htmltests/" + file);
+        if (in == null)
+            throw new IllegalArgumentException("Unknown corpus file " + file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Decodes the file with the charset jsoup detects for it. */
+    static String html(String file) throws IOException {
+        byte[] bytes = bytes(file);
+        String charset = Jsoup.parse(new ByteArrayInputStream(bytes), null, baseUri).outputSettings().charset().name();
+        return new String(bytes, charset);
+    }
+
+    static Document document(String file) throws IOException {
+        return Jsoup.parse(html(file), baseUri);
+    }
+}
@@ -0,0 +1,37 @@
+package org.jsoup.benchmarks;
+
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialises parsed documents with {@code outerHtml}, with pretty-printing on and off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputBenchmark {
+    @Param({"news-com-au-home.html", "yahoo-jp.html"})
+    public String file;
+
+    @Param({"true", "false"})
+    public boolean prettyPrint;
+
+    private Document doc;
+
+    @Setup
+    public void setup() throws IOException {
+        doc = Corpus.document(file);
+        doc.outputSettings().prettyPrint(prettyPrint);
+    }
+
+    @Benchmark
+    public String outerHtml() {
+        return doc.outerHtml();
+    }
+}
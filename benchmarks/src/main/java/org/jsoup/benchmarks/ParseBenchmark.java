@@ -0,0 +1,43 @@
+package org.jsoup.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses documents from the corpus, from a String, and from bytes (including charset detection and decoding).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({"google-ipod.html", "news-com-au-home.html", "nyt-article-1.html", "smh-biz-article-1.html",
+        "yahoo-article-1.html", "yahoo-jp.html", "baidu-cn-home.html"})
+    public String file;
+
+    private String html;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() throws IOException {
+        bytes = Corpus.bytes(file);
+        html = Corpus.html(file);
+    }
+
+    @Benchmark
+    public Document parseString() {
+        return Jsoup.parse(html, Corpus.baseUri);
+    }
+
+    @Benchmark
+    public Document parseBytes() throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(bytes), null, Corpus.baseUri);
+    }
+}
@@ -0,0 +1,39 @@
+package org.jsoup.benchmarks;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a range of queries, from simple tag and attribute selectors to combinators and structural pseudo selectors,
+ * against a large parsed document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBenchmark {
+    @Param({"news-com-au-home.html"})
+    public String file;
+
+    @Param({"a", "#header", ".heading", "a[href]", "a[href^=http]", "[class~=(?i)^story]", "div a", "div > p",
+        "li + li", "li:nth-child(2n+1)", "div:has(a)", "p:contains(news)", "meta[http-equiv=content-type], meta[charset]"})
+    public String query;
+
+    private Document doc;
+
+    @Setup
+    public void setup() throws IOException {
+        doc = Corpus.document(file);
+    }
+
+    @Benchmark
+    public Elements select() {
+        return doc.select(query);
+    }
+}
@@ -0,0 +1,47 @@
+package org.jsoup.nodes;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escapes the text of a non-ASCII document from the corpus, per escape mode and output charset. In the nodes package
+ * to call the package-private {@code Entities.escape}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntitiesBenchmark {
+    @Param({"yahoo-jp.html"})
+    public String file;
+
+    @Param({"base", "extended", "xhtml"})
+    public Entities.EscapeMode escapeMode;
+
+    @Param({"UTF-8", "US-ASCII", "Shift_JIS"})
+    public String charset;
+
+    private String text;
+    private Document.OutputSettings out;
+
+    @Setup
+    public void setup() throws IOException {
+        InputStream in = getClass().getResourceAsStream("/htmltests/" + file);
+        try {
+            text = org.jsoup.Jsoup.parse(in, null, "http://example.com/").text();
+        } finally {
+            in.close();
+        }
+        out = new Document.OutputSettings().escapeMode(escapeMode).charset(charset);
+    }
+
+    @Benchmark
+    public String escape() {
+        return Entities.escape(text, out);
+    }
+}
@@ -244,9 +244,7 @@ public class Jsoup {
      @see #clean(String, org.jsoup.safety.Whitelist) 
      */
     public static boolean isValid(String bodyHtml, Whitelist whitelist) {
-        Document dirty = parseBodyFragment(bodyHtml, "");
-        Cleaner cleaner = new Cleaner(whitelist);
-        return cleaner.isValid(dirty);
+        return new Cleaner(whitelist).isValid(parseBodyFragment(bodyHtml, ""));
     }
     
 }
@@ -0,0 +1,18 @@
+package org.jsoup;
+
+import java.io.IOException;
+
+/**
+ * Signals that an IOException occurred while reading from or writing to a stream where checked exceptions can't be
+ * thrown, e.g. by the parser when reading from a {@link java.io.Reader}, or when writing HTML to an
+ * {@link Appendable}. The cause is the original IOException.
+ */
+public class UncheckedIOException extends RuntimeException {
+    public UncheckedIOException(IOException cause) {
+        super(cause);
+    }
+
+    public IOException ioException() {
+        return (IOException) getCause();
+    }
+}
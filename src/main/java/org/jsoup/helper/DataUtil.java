@@ -1,5 +1,6 @@
 package org.jsoup.helper;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.parser.Parser;
@@ -21,7 +22,7 @@ public final class DataUtil {
     private static final Pattern charsetPattern = Pattern.compile("(?i)\\bcharset=\\s*(?:\"|')?([^\\s,;\"']*)");
     static final String defaultCharset = "UTF-8"; // used if not found in header or meta charset
     private static final int bufferSize = 0x20000; // ~130K.
-    private static final int UNICODE_BOM = 0xFEFF;
+    private static final int firstReadBufferSize = 1024 * 5; // bytes sniffed for a BOM or meta charset
     private static final char[] mimeBoundaryChars =
             "-_1234567890abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
     static final int boundaryLength = 32;
@@ -37,8 +38,12 @@ public final class DataUtil {
      * @throws IOException on IO error
      */
     public static Document load(File in, String charsetName, String baseUri) throws IOException {
-        ByteBuffer byteData = readFileToByteBuffer(in);
-        return parseByteData(byteData, charsetName, baseUri, Parser.htmlParser());
+        InputStream inStream = new FileInputStream(in);
+        try {
+            return parseInputStream(inStream, charsetName, baseUri, Parser.htmlParser());
+        } finally {
+            inStream.close();
+        }
     }
 
     /**
@@ -50,8 +55,7 @@ public final class DataUtil {
      * @throws IOException on IO error
      */
     public static Document load(InputStream in, String charsetName, String baseUri) throws IOException {
-        ByteBuffer byteData = readToByteBuffer(in);
-        return parseByteData(byteData, charsetName, baseUri, Parser.htmlParser());
+        return parseInputStream(in, charsetName, baseUri, Parser.htmlParser());
     }
 
     /**
@@ -64,8 +68,7 @@ public final class DataUtil {
      * @throws IOException on IO error
      */
     public static Document load(InputStream in, String charsetName, String baseUri, Parser parser) throws IOException {
-        ByteBuffer byteData = readToByteBuffer(in);
-        return parseByteData(byteData, charsetName, baseUri, parser);
+        return parseInputStream(in, charsetName, baseUri, parser);
     }
 
     /**
@@ -82,59 +85,117 @@ public final class DataUtil {
         }
     }
 
-    // reads bytes first into a buffer, then decodes with the appropriate charset. done this way to support
-    // switching the chartset midstream when a meta http-equiv tag defines the charset.
-    // todo - this is getting gnarly. needs a rewrite.
-    static Document parseByteData(ByteBuffer byteData, String charsetName, String baseUri, Parser parser) {
-        String docData;
+    // sniffs the charset from a BOM, or (if not set by the caller) from a meta charset in the first few KB of the
+    // input; then decodes and parses the input in one streaming pass.
+    static Document parseInputStream(InputStream input, String charsetName, String baseUri, Parser parser) throws IOException {
+        BufferedInputStream inStream = new BufferedInputStream(input, bufferSize);
+        inStream.mark(firstReadBufferSize + 1); // the first bytes, and one more to check for the end of input
+        byte[] firstBytes = new byte[firstReadBufferSize];
+        int firstLength = readFully(inStream, firstBytes);
+        boolean fullyRead = inStream.read() == -1;
+        inStream.reset();
+
         Document doc = null;
-        if (charsetName == null) { // determine from meta. safe parse as UTF-8
+        String bomCharset = detectCharsetFromBom(firstBytes, firstLength);
+        if (bomCharset != null) { // BOM takes precedence over everything else
+            if (bomCharset.equals(defaultCharset))
+                inStream.skip(3); // the UTF-8 decoder does not skip the BOM; UTF-16 and UTF-32 decoders do
+            charsetName = bomCharset;
+        } else if (charsetName == null) { // determine from meta. safe parse of the first bytes as UTF-8
             // look for <meta http-equiv="Content-Type" content="text/html;charset=gb2312"> or HTML5 <meta charset="gb2312">
-            docData = Charset.forName(defaultCharset).decode(byteData).toString();
-            doc = parser.parseInput(docData, baseUri);
-            Element meta = doc.select("meta[http-equiv=content-type], meta[charset]").first();
-            if (meta != null) { // if not found, will keep utf-8 as best attempt
-                String foundCharset = null;
-                if (meta.hasAttr("http-equiv")) {
-                    foundCharset = getCharsetFromContentType(meta.attr("content"));
-                }
-                if (foundCharset == null && meta.hasAttr("charset")) {
-                    try {
-                        if (Charset.isSupported(meta.attr("charset"))) {
-                            foundCharset = meta.attr("charset");
-                        }
-                    } catch (IllegalCharsetNameException e) {
-                        foundCharset = null;
-                    }
-                }
-
-                if (foundCharset != null && foundCharset.length() != 0 && !foundCharset.equals(defaultCharset)) { // need to re-decode
-                    foundCharset = foundCharset.trim().replaceAll("[\"']", "");
-                    charsetName = foundCharset;
-                    byteData.rewind();
-                    docData = Charset.forName(foundCharset).decode(byteData).toString();
-                    doc = null;
-                }
+            String firstData = Charset.forName(defaultCharset).decode(ByteBuffer.wrap(firstBytes, 0, firstLength)).toString();
+            Document firstDoc = parser.parseInput(firstData, baseUri);
+            String foundCharset = getCharsetFromMeta(firstDoc);
+            if (foundCharset != null && !foundCharset.equals(defaultCharset)) {
+                charsetName = foundCharset;
+            } else {
+                charsetName = defaultCharset;
+                if (fullyRead) // already have the complete document, so don't parse it again
+                    doc = firstDoc;
             }
         } else { // specified by content type header (or by user on file load)
             Validate.notEmpty(charsetName, "Must set charset arg to character set of file to parse. Set to null to attempt to detect from HTML");
-            docData = Charset.forName(charsetName).decode(byteData).toString();
-        }
-        // UTF-8 BOM indicator. takes precedence over everything else. rarely used. re-decodes incase above decoded incorrectly
-        if (docData.length() > 0 && docData.charAt(0) == UNICODE_BOM) {
-            byteData.rewind();
-            docData = Charset.forName(defaultCharset).decode(byteData).toString();
-            docData = docData.substring(1);
-            charsetName = defaultCharset;
-            doc = null;
         }
+
         if (doc == null) {
-            doc = parser.parseInput(docData, baseUri);
-            doc.outputSettings().charset(charsetName);
+            Reader reader = new InputStreamReader(inStream, Charset.forName(charsetName));
+            try {
+                doc = parser.parseInput(reader, baseUri);
+            } catch (UncheckedIOException e) {
+                throw e.ioException();
+            }
         }
+        doc.outputSettings().charset(charsetName);
         return doc;
     }
 
+    static Document parseByteData(ByteBuffer byteData, String charsetName, String baseUri, Parser parser) {
+        InputStream inStream = byteData.hasArray() ?
+                new ByteArrayInputStream(byteData.array(), byteData.arrayOffset() + byteData.position(), byteData.remaining()) :
+                new ByteArrayInputStream(copyRemaining(byteData));
+        try {
+            return parseInputStream(inStream, charsetName, baseUri, parser);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // not expected when reading from memory
+        }
+    }
+
+    private static String getCharsetFromMeta(Document doc) {
+        Element meta = doc.selectFirst("meta[http-equiv=content-type], meta[charset]");
+        if (meta == null) // if not found, will keep utf-8 as best attempt
+            return null;
+
+        String foundCharset = null;
+        if (meta.hasAttr("http-equiv")) {
+            foundCharset = getCharsetFromContentType(meta.attr("content"));
+        }
+        if (foundCharset == null && meta.hasAttr("charset")) {
+            try {
+                if (Charset.isSupported(meta.attr("charset"))) {
+                    foundCharset = meta.attr("charset");
+                }
+            } catch (IllegalCharsetNameException e) {
+                foundCharset = null;
+            }
+        }
+        if (foundCharset == null || foundCharset.length() == 0)
+            return null;
+        return foundCharset.trim().replaceAll("[\"']", "");
+    }
+
+    // the BOM is the first bytes of the input, if present. returns null if no BOM (or no supported charset for it)
+    private static String detectCharsetFromBom(byte[] bom, int length) {
+        String charset = null;
+        if (length >= 4 && ((bom[0] == 0x00 && bom[1] == 0x00 && bom[2] == (byte) 0xFE && bom[3] == (byte) 0xFF) || // BE
+                (bom[0] == (byte) 0xFF && bom[1] == (byte) 0xFE && bom[2] == 0x00 && bom[3] == 0x00))) { // LE
+            charset = "UTF-32";
+        } else if (length >= 2 && ((bom[0] == (byte) 0xFE && bom[1] == (byte) 0xFF) || // BE
+                (bom[0] == (byte) 0xFF && bom[1] == (byte) 0xFE))) { // LE
+            charset = "UTF-16";
+        } else if (length >= 3 && bom[0] == (byte) 0xEF && bom[1] == (byte) 0xBB && bom[2] == (byte) 0xBF) {
+            charset = defaultCharset;
+        }
+        return charset != null && Charset.isSupported(charset) ? charset : null;
+    }
+
+    // reads until the buffer is full or the stream is exhausted. returns the number of bytes read.
+    private static int readFully(InputStream inStream, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = inStream.read(buffer, length, buffer.length - length);
+            if (read == -1)
+                break;
+            length += read;
+        }
+        return length;
+    }
+
+    private static byte[] copyRemaining(ByteBuffer byteData) {
+        byte[] bytes = new byte[byteData.remaining()];
+        byteData.duplicate().get(bytes);
+        return bytes;
+    }
+
     /**
      * Read the input stream into a byte buffer.
      * @param inStream the input stream to read from
@@ -169,19 +230,6 @@ public final class DataUtil {
         return readToByteBuffer(inStream, 0);
     }
 
-    static ByteBuffer readFileToByteBuffer(File file) throws IOException {
-        RandomAccessFile randomAccessFile = null;
-        try {
-            randomAccessFile = new RandomAccessFile(file, "r");
-            byte[] bytes = new byte[(int) randomAccessFile.length()];
-            randomAccessFile.readFully(bytes);
-            return ByteBuffer.wrap(bytes);
-        } finally {
-            if (randomAccessFile != null)
-                randomAccessFile.close();
-        }
-    }
-
     static ByteBuffer emptyByteBuffer() {
         return ByteBuffer.allocate(0);
     }
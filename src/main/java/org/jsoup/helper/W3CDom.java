@@ -7,27 +7,75 @@ import org.w3c.dom.Comment;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Text;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
 
+import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.StringWriter;
 import javax.xml.transform.TransformerException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Helper class to transform a {@link org.jsoup.nodes.Document} to a {@link org.w3c.dom.Document org.w3c.dom.Document},
- * for integration with toolsets that use the W3C DOM.
+ * for integration with toolsets that use the W3C DOM; or to stream it as SAX events, without building a W3C DOM.
+ * <p>
+ * Elements and attributes are placed in the namespaces declared by {@code xmlns} attributes in the jsoup document
+ * (e.g. {@code <svg xmlns="http://www.w3.org/2000/svg">}); those without a declared namespace have none.
+ * </p>
+ * <p>
+ * The document builder and transformer are created once per thread for each W3CDom, and reused. A W3CDom can be
+ * shared between threads, but its {@link #factory} should be configured before its first use.
+ * </p>
  * <p>
  * This class is currently <b>experimental</b>, please provide feedback on utility and any problems experienced.
  * </p>
  */
 public class W3CDom {
+    private static final String xmlnsKey = "xmlns";
+    private static final String xmlnsPrefix = "xmlns:";
+
     protected DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
 
+    private final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<DocumentBuilder>() {
+        @Override
+        protected DocumentBuilder initialValue() {
+            try {
+                synchronized (factory) { // factories are not thread-safe, and each thread creates its builder from it
+                    return factory.newDocumentBuilder();
+                }
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    private final ThreadLocal<Transformer> transformers = new ThreadLocal<Transformer>() {
+        @Override
+        protected Transformer initialValue() {
+            try {
+                return TransformerFactory.newInstance().newTransformer();
+            } catch (TransformerConfigurationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    public W3CDom() {
+        factory.setNamespaceAware(true);
+    }
+
     /**
      * Convert a jsoup Document to a W3C Document.
      * @param in jsoup doc
@@ -35,15 +83,11 @@ public class W3CDom {
      */
     public Document fromJsoup(org.jsoup.nodes.Document in) {
         Validate.notNull(in);
-        DocumentBuilder builder;
-        try {
-            builder = factory.newDocumentBuilder();
-            Document out = builder.newDocument();
-            convert(in, out);
-            return out;
-        } catch (ParserConfigurationException e) {
-            throw new IllegalStateException(e);
-        }
+        DocumentBuilder builder = builders.get();
+        builder.reset();
+        Document out = builder.newDocument();
+        convert(in, out);
+        return out;
     }
 
     /**
@@ -62,11 +106,33 @@ public class W3CDom {
         traversor.traverse(rootEl);
     }
 
+    /**
+     * Streams a jsoup document to a SAX ContentHandler, as the events of a namespace aware parse, without building a W3C
+     * Document. If the handler is also a {@link LexicalHandler}, comments are reported to it. To transform the document
+     * (e.g. with XSLT), pass a {@link javax.xml.transform.sax.TransformerHandler}.
+     * @param in jsoup doc
+     * @param out handler to send the events to
+     * @throws SAXException if the handler throws
+     */
+    public void convert(org.jsoup.nodes.Document in, ContentHandler out) throws SAXException {
+        Validate.notNull(in);
+        Validate.notNull(out);
+        SaxWriter writer = new SaxWriter(out);
+        out.startDocument();
+        try {
+            new NodeTraversor(writer).traverse(in.child(0)); // skip the #root node
+        } catch (SaxWriter.WrappedException e) {
+            throw e.getCause();
+        }
+        out.endDocument();
+    }
+
     /**
      * Implements the conversion by walking the input.
      */
     protected class W3CBuilder implements NodeVisitor {
         private final Document doc;
+        private final Namespaces namespaces = new Namespaces();
         private Element dest;
 
         public W3CBuilder(Document doc) {
@@ -76,7 +142,11 @@ public class W3CDom {
         public void head(org.jsoup.nodes.Node source, int depth) {
             if (source instanceof org.jsoup.nodes.Element) {
                 org.jsoup.nodes.Element sourceEl = (org.jsoup.nodes.Element) source;
-                Element el = doc.createElement(sourceEl.tagName());
+                String tagName = sourceEl.tagName();
+                String namespace = namespaces.push(sourceEl);
+                Element el = namespace == null && tagName.indexOf(':') != -1 ?
+                    doc.createElement(tagName) : // prefix without a declared namespace, or not a valid qualified name
+                    doc.createElementNS(namespace, tagName);
                 copyAttributes(sourceEl, el);
                 if (dest == null) { // sets up the root
                     doc.appendChild(el);
@@ -102,18 +172,198 @@ public class W3CDom {
         }
 
         public void tail(org.jsoup.nodes.Node source, int depth) {
-            if (source instanceof org.jsoup.nodes.Element && dest.getParentNode() instanceof Element) {
-                dest = (Element) dest.getParentNode(); // undescend. cromulent.
+            if (source instanceof org.jsoup.nodes.Element) {
+                namespaces.pop();
+                if (dest.getParentNode() instanceof Element)
+                    dest = (Element) dest.getParentNode(); // undescend. cromulent.
             }
         }
 
         private void copyAttributes(org.jsoup.nodes.Node source, Element el) {
             for (Attribute attribute : source.attributes()) {
-                el.setAttribute(attribute.getKey(), attribute.getValue());
+                String key = attribute.getKey();
+                if (isDeclaration(key)) {
+                    el.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, key, attribute.getValue());
+                } else {
+                    String namespace = key.indexOf(':') != -1 ? namespaces.attributeNamespace(key) : null;
+                    if (namespace != null)
+                        el.setAttributeNS(namespace, key, attribute.getValue());
+                    else
+                        el.setAttribute(key, attribute.getValue());
+                }
             }
         }
     }
 
+    /**
+     * Sends the SAX events for the nodes as it walks the input. Handler exceptions are wrapped to pass through the
+     * traversor.
+     */
+    private static class SaxWriter implements NodeVisitor {
+        private final ContentHandler handler;
+        private final LexicalHandler lexicalHandler; // null if the handler does not take comments
+        private final Namespaces namespaces = new Namespaces();
+        private final AttributesImpl attributes = new AttributesImpl(); // reused for each element
+
+        SaxWriter(ContentHandler handler) {
+            this.handler = handler;
+            this.lexicalHandler = handler instanceof LexicalHandler ? (LexicalHandler) handler : null;
+        }
+
+        public void head(org.jsoup.nodes.Node source, int depth) {
+            try {
+                if (source instanceof org.jsoup.nodes.Element) {
+                    org.jsoup.nodes.Element sourceEl = (org.jsoup.nodes.Element) source;
+                    String tagName = sourceEl.tagName();
+                    String namespace = namespaces.push(sourceEl);
+
+                    attributes.clear();
+                    for (Attribute attribute : sourceEl.attributes()) {
+                        String key = attribute.getKey();
+                        if (isDeclaration(key)) {
+                            handler.startPrefixMapping(declaredPrefix(key), attribute.getValue());
+                        } else {
+                            String attrNamespace = key.indexOf(':') != -1 ? namespaces.attributeNamespace(key) : null;
+                            attributes.addAttribute(attrNamespace != null ? attrNamespace : "",
+                                attrNamespace != null ? localName(key) : key, key, "CDATA", attribute.getValue());
+                        }
+                    }
+                    handler.startElement(namespace != null ? namespace : "",
+                        namespace != null ? localName(tagName) : tagName, tagName, attributes);
+                } else if (source instanceof org.jsoup.nodes.TextNode) {
+                    characters(((org.jsoup.nodes.TextNode) source).getWholeText());
+                } else if (source instanceof org.jsoup.nodes.DataNode) {
+                    characters(((org.jsoup.nodes.DataNode) source).getWholeData());
+                } else if (source instanceof org.jsoup.nodes.Comment && lexicalHandler != null) {
+                    char[] chars = ((org.jsoup.nodes.Comment) source).getData().toCharArray();
+                    lexicalHandler.comment(chars, 0, chars.length);
+                }
+            } catch (SAXException e) {
+                throw new WrappedException(e);
+            }
+        }
+
+        public void tail(org.jsoup.nodes.Node source, int depth) {
+            if (!(source instanceof org.jsoup.nodes.Element))
+                return;
+            org.jsoup.nodes.Element sourceEl = (org.jsoup.nodes.Element) source;
+            String tagName = sourceEl.tagName();
+            String namespace = namespaces.pop();
+            try {
+                handler.endElement(namespace != null ? namespace : "",
+                    namespace != null ? localName(tagName) : tagName, tagName);
+                for (Attribute attribute : sourceEl.attributes()) {
+                    String key = attribute.getKey();
+                    if (isDeclaration(key))
+                        handler.endPrefixMapping(declaredPrefix(key));
+                }
+            } catch (SAXException e) {
+                throw new WrappedException(e);
+            }
+        }
+
+        private void characters(String text) throws SAXException {
+            char[] chars = text.toCharArray();
+            handler.characters(chars, 0, chars.length);
+        }
+
+        private static String declaredPrefix(String xmlnsAttribute) {
+            return xmlnsAttribute.equals(xmlnsKey) ? "" : xmlnsAttribute.substring(xmlnsPrefix.length());
+        }
+
+        private static String localName(String name) {
+            int colon = name.indexOf(':');
+            return colon == -1 ? name : name.substring(colon + 1);
+        }
+
+        private static class WrappedException extends RuntimeException {
+            WrappedException(SAXException cause) {
+                super(cause);
+            }
+
+            @Override
+            public SAXException getCause() {
+                return (SAXException) super.getCause();
+            }
+        }
+    }
+
+    /**
+     * Tracks the namespaces in scope, by prefix ({@code ""} for the default namespace), as declared by the
+     * {@code xmlns} attributes of the open elements. An element that declares nothing shares its parent's scope.
+     */
+    private static class Namespaces {
+        private final ArrayList<Map<String, String>> scopes = new ArrayList<Map<String, String>>();
+        private final ArrayList<String> elementNamespaces = new ArrayList<String>();
+
+        Namespaces() {
+            Map<String, String> initial = new HashMap<String, String>();
+            initial.put(XMLConstants.XML_NS_PREFIX, XMLConstants.XML_NS_URI);
+            scopes.add(initial);
+        }
+
+        /**
+         * Enter an element, and get its namespace.
+         * @return the namespace of the element's prefix (or the default namespace), or null if none is declared
+         */
+        String push(org.jsoup.nodes.Element el) {
+            Map<String, String> scope = scopes.get(scopes.size() - 1);
+            boolean copied = false;
+            for (Attribute attribute : el.attributes()) {
+                String key = attribute.getKey();
+                if (!isDeclaration(key))
+                    continue;
+                String prefix = key.equals(xmlnsKey) ? "" : key.substring(xmlnsPrefix.length());
+                if (!copied) {
+                    scope = new HashMap<String, String>(scope);
+                    copied = true;
+                }
+                scope.put(prefix, attribute.getValue());
+            }
+            scopes.add(scope);
+
+            String tagName = el.tagName();
+            int colon = tagName.indexOf(':');
+            String namespace = isQName(tagName) ? scope.get(colon == -1 ? "" : tagName.substring(0, colon)) : null;
+            if (namespace != null && namespace.length() == 0)
+                namespace = null; // xmlns="" undeclares the default
+            elementNamespaces.add(namespace);
+            return namespace;
+        }
+
+        /**
+         * Leave the current element.
+         * @return the element's namespace, as returned by push
+         */
+        String pop() {
+            scopes.remove(scopes.size() - 1);
+            return elementNamespaces.remove(elementNamespaces.size() - 1);
+        }
+
+        /**
+         * Get the namespace of a prefixed attribute of the current element. (Unprefixed attributes have no namespace.)
+         * @return the namespace, or null if its prefix is not declared, or the key is not a valid qualified name
+         */
+        String attributeNamespace(String key) {
+            if (!isQName(key))
+                return null;
+            String namespace = scopes.get(scopes.size() - 1).get(key.substring(0, key.indexOf(':')));
+            return namespace != null && namespace.length() > 0 ? namespace : null;
+        }
+    }
+
+    // if the attribute declares a namespace: xmlns, or xmlns:prefix with a valid prefix
+    private static boolean isDeclaration(String key) {
+        return key.equals(xmlnsKey) || (key.startsWith(xmlnsPrefix) && isQName(key));
+    }
+
+    // if the name is a valid qualified name, as far as its colons go: at most one, not at either end. HTML names can
+    // have more (e.g. a:b:c), which the DOM rejects with a NAMESPACE_ERR, so those are converted without a namespace
+    private static boolean isQName(String name) {
+        int colon = name.indexOf(':');
+        return colon == -1 || (colon > 0 && colon < name.length() - 1 && name.indexOf(':', colon + 1) == -1);
+    }
+
     /**
      * Serialize a W3C document to a String.
      * @param doc Document
@@ -124,8 +374,8 @@ public class W3CDom {
             DOMSource domSource = new DOMSource(doc);
             StringWriter writer = new StringWriter();
             StreamResult result = new StreamResult(writer);
-            TransformerFactory tf = TransformerFactory.newInstance();
-            Transformer transformer = tf.newTransformer();
+            Transformer transformer = transformers.get();
+            transformer.reset();
             transformer.transform(domSource, result);
             return writer.toString();
         } catch (TransformerException e) {
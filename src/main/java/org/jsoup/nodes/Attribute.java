@@ -1,7 +1,9 @@
 package org.jsoup.nodes;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.Validate;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -19,6 +21,7 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
 
     private String key;
     private String value;
+    Attributes parent; // the set this is a view of, if any; updates to the key and value are written through to it
 
     /**
      * Create a new attribute from unencoded (raw) key and value.
@@ -47,7 +50,10 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
      */
     public void setKey(String key) {
         Validate.notEmpty(key);
-        this.key = key.trim().toLowerCase();
+        key = key.trim().toLowerCase();
+        if (parent != null)
+            parent.setKey(this.key, key);
+        this.key = key;
     }
 
     /**
@@ -65,6 +71,11 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
     public String setValue(String value) {
         Validate.notNull(value);
         String old = this.value;
+        if (parent != null) {
+            String parentOld = parent.setValue(key, value);
+            if (parentOld != null)
+                old = parentOld;
+        }
         this.value = value;
         return old;
     }
@@ -75,11 +86,15 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
      */
     public String html() {
         StringBuilder accum = new StringBuilder();
-        html(accum, (new Document("")).outputSettings());
+        try {
+            html(accum, (new Document("")).outputSettings());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return accum.toString();
     }
     
-    protected void html(StringBuilder accum, Document.OutputSettings out) {
+    protected void html(Appendable accum, Document.OutputSettings out) throws IOException {
         accum.append(key);
         if (!shouldCollapseAttribute(out)) {
             accum.append("=\"");
@@ -88,6 +103,16 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
         }
     }
 
+    // html for an attribute held in Attributes, without creating an Attribute. A null value is a boolean attribute.
+    static void html(String key, String value, Appendable accum, Document.OutputSettings out) throws IOException {
+        accum.append(key);
+        if (!shouldCollapseAttribute(key, value, out)) {
+            accum.append("=\"");
+            Entities.escape(accum, value == null ? "" : value, out, true, false, false);
+            accum.append('"');
+        }
+    }
+
     /**
      Get the string representation of this attribute, implemented as {@link #html()}.
      @return string
@@ -109,6 +134,10 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
     }
 
     protected boolean isDataAttribute() {
+        return isDataAttribute(key);
+    }
+
+    static boolean isDataAttribute(String key) {
         return key.startsWith(Attributes.dataPrefix) && key.length() > Attributes.dataPrefix.length();
     }
 
@@ -124,7 +153,16 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
                 && isBooleanAttribute();
     }
 
+    private static boolean shouldCollapseAttribute(String key, String value, Document.OutputSettings out) {
+        return out.syntax() == Document.OutputSettings.Syntax.html
+                && (value == null || (("".equals(value) || value.equalsIgnoreCase(key)) && isBooleanAttribute(key)));
+    }
+
     protected boolean isBooleanAttribute() {
+        return isBooleanAttribute(key);
+    }
+
+    static boolean isBooleanAttribute(String key) {
         return Arrays.binarySearch(booleanAttributes, key) >= 0;
     }
 
@@ -149,7 +187,9 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
     @Override
     public Attribute clone() {
         try {
-            return (Attribute) super.clone(); // only fields are immutable strings key and value, so no more deep copy required
+            Attribute clone = (Attribute) super.clone(); // key and value are immutable strings, so no more deep copy required
+            clone.parent = null; // a clone is not a view
+            return clone;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
         }
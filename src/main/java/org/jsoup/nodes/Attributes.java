@@ -1,7 +1,9 @@
 package org.jsoup.nodes;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.Validate;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -13,15 +15,26 @@ import java.util.*;
  * Attribute key and value comparisons are done case insensitively, and keys are normalised to
  * lower-case.
  * </p>
+ * <p>
+ * Attributes are held in parallel arrays of keys and values, in insertion order, and found by a linear scan (elements
+ * seldom have more than a few). {@link Attribute} objects are only created as views, by {@link #iterator()} and
+ * {@link #asList()}.
+ * </p>
  * 
  * @author Jonathan Hedley, jonathan@hedley.net
  */
 public class Attributes implements Iterable<Attribute>, Cloneable {
     protected static final String dataPrefix = "data-";
-    
-    private LinkedHashMap<String, Attribute> attributes = null;
-    // linked hash map to preserve insertion order.
-    // null be default as so many elements have no attributes -- saves a good chunk of memory
+    private static final int initialCapacity = 2; // sized for the common case of an element with one or two attributes
+    private static final int notFound = -1;
+    private static final String[] empty = {};
+
+    // parallel arrays of keys and values, in insertion order. a null value marks a boolean attribute.
+    // empty by default as so many elements have no attributes -- saves a good chunk of memory
+    private int size = 0;
+    private String[] keys = empty;
+    private String[] vals = empty;
+    Node owner; // the node holding these attributes, told of changes to them; null if none
 
     /**
      Get an attribute value by key.
@@ -32,11 +45,8 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
     public String get(String key) {
         Validate.notEmpty(key);
 
-        if (attributes == null)
-            return "";
-
-        Attribute attr = attributes.get(key.toLowerCase());
-        return attr != null ? attr.getValue() : "";
+        int i = indexOfKey(key.toLowerCase());
+        return i == notFound ? "" : checkNotNull(vals[i]);
     }
 
     /**
@@ -45,8 +55,9 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @param value attribute value
      */
     public void put(String key, String value) {
-        Attribute attr = new Attribute(key, value);
-        put(attr);
+        Validate.notEmpty(key);
+        Validate.notNull(value);
+        putNormal(normalKey(key), value);
     }
     
     /**
@@ -55,21 +66,39 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
     @param value attribute value
     */
     public void put(String key, boolean value) {
-        if (value)
-            put(new BooleanAttribute(key));
-        else
+        if (value) {
+            Validate.notEmpty(key);
+            putNormal(normalKey(key), null);
+        } else
             remove(key);
     }
 
     /**
-     Set a new attribute, or replace an existing one by key.
+     Set a new attribute, or replace an existing one by key. The attribute's key and value are copied into this set;
+     later changes to the attribute object are not reflected here.
      @param attribute attribute
      */
     public void put(Attribute attribute) {
         Validate.notNull(attribute);
-        if (attributes == null)
-             attributes = new LinkedHashMap<String, Attribute>(2);
-        attributes.put(attribute.getKey(), attribute);
+        String value = attribute.getValue();
+        boolean isBoolean = attribute instanceof BooleanAttribute && value.length() == 0;
+        putNormal(attribute.getKey(), isBoolean ? null : value);
+    }
+
+    // key must be normalised
+    private void putNormal(String key, String value) {
+        int i = indexOfKey(key);
+        String old = null;
+        if (i != notFound) {
+            old = vals[i];
+            vals[i] = value;
+        } else {
+            ensureCapacity(size + 1);
+            keys[size] = key;
+            vals[size] = value;
+            size++;
+        }
+        changed(key, old, value);
     }
 
     /**
@@ -78,9 +107,21 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public void remove(String key) {
         Validate.notEmpty(key);
-        if (attributes == null)
-            return;
-        attributes.remove(key.toLowerCase());
+        int i = indexOfKey(key.toLowerCase());
+        if (i != notFound)
+            removeAt(i);
+    }
+
+    private void removeAt(int index) {
+        changed(keys[index], vals[index], null);
+        int shifted = size - index - 1;
+        if (shifted > 0) {
+            System.arraycopy(keys, index + 1, keys, index, shifted);
+            System.arraycopy(vals, index + 1, vals, index, shifted);
+        }
+        size--;
+        keys[size] = null; // release for gc
+        vals[size] = null;
     }
 
     /**
@@ -89,7 +130,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @return true if key exists, false otherwise
      */
     public boolean hasKey(String key) {
-        return attributes != null && attributes.containsKey(key.toLowerCase());
+        return indexOfKey(key.toLowerCase()) != notFound;
     }
 
     /**
@@ -97,9 +138,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @return size
      */
     public int size() {
-        if (attributes == null)
-            return 0;
-        return attributes.size();
+        return size;
     }
 
     /**
@@ -109,31 +148,52 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
     public void addAll(Attributes incoming) {
         if (incoming.size() == 0)
             return;
-        if (attributes == null)
-            attributes = new LinkedHashMap<String, Attribute>(incoming.size());
-        attributes.putAll(incoming.attributes);
+        ensureCapacity(size + incoming.size);
+        for (int i = 0; i < incoming.size; i++)
+            putNormal(incoming.keys[i], incoming.vals[i]);
     }
     
     public Iterator<Attribute> iterator() {
-        return asList().iterator();
+        return new Iterator<Attribute>() {
+            int i = 0;
+
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            public Attribute next() {
+                if (i >= size)
+                    throw new NoSuchElementException();
+                return attributeAt(i++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     /**
-     Get the attributes as a List, for iteration. Do not modify the keys of the attributes via this view, as changes
-     to keys will not be recognised in the containing set.
+     Get the attributes as a List, for iteration. Each attribute is a view on this set: setting its value updates
+     the value in this set. Do not modify the keys of the attributes via this view.
      @return an view of the attributes as a List.
      */
     public List<Attribute> asList() {
-        if (attributes == null)
+        if (size == 0)
             return Collections.emptyList();
 
-        List<Attribute> list = new ArrayList<Attribute>(attributes.size());
-        for (Map.Entry<String, Attribute> entry : attributes.entrySet()) {
-            list.add(entry.getValue());
-        }
+        List<Attribute> list = new ArrayList<Attribute>(size);
+        for (int i = 0; i < size; i++)
+            list.add(attributeAt(i));
         return Collections.unmodifiableList(list);
     }
 
+    private Attribute attributeAt(int i) {
+        Attribute attribute = vals[i] == null ? new BooleanAttribute(keys[i]) : new Attribute(keys[i], vals[i]);
+        attribute.parent = this;
+        return attribute;
+    }
+
     /**
      * Retrieves a filtered view of attributes that are HTML5 custom data attributes; that is, attributes with keys
      * starting with {@code data-}.
@@ -149,18 +209,25 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public String html() {
         StringBuilder accum = new StringBuilder();
-        html(accum, (new Document("")).outputSettings()); // output settings a bit funky, but this html() seldom used
+        try {
+            html(accum, (new Document("")).outputSettings()); // output settings a bit funky, but this html() seldom used
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return accum.toString();
     }
-    
-    void html(StringBuilder accum, Document.OutputSettings out) {
-        if (attributes == null)
-            return;
-        
-        for (Map.Entry<String, Attribute> entry : attributes.entrySet()) {
-            Attribute attribute = entry.getValue();
-            accum.append(" ");
-            attribute.html(accum, out);
+
+    /**
+     Write the HTML representation of these attributes (each preceded by a space) to an Appendable, using the escape
+     mode, charset and syntax of the output settings.
+     @param accum the Appendable to write to
+     @param out output settings
+     @throws IOException if the Appendable throws
+     */
+    public void html(Appendable accum, Document.OutputSettings out) throws IOException {
+        for (int i = 0; i < size; i++) {
+            accum.append(' ');
+            Attribute.html(keys[i], vals[i], accum, out);
         }
     }
     
@@ -180,8 +247,13 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         if (!(o instanceof Attributes)) return false;
         
         Attributes that = (Attributes) o;
-        
-        return !(attributes != null ? !attributes.equals(that.attributes) : that.attributes != null);
+        if (size != that.size) return false;
+        for (int i = 0; i < size; i++) {
+            int j = that.indexOfKey(keys[i]);
+            if (j == notFound || !checkNotNull(vals[i]).equals(checkNotNull(that.vals[j])))
+                return false;
+        }
+        return true;
     }
 
     /**
@@ -190,32 +262,95 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     @Override
     public int hashCode() {
-        return attributes != null ? attributes.hashCode() : 0;
+        int result = 0;
+        for (int i = 0; i < size; i++)
+            result += 31 * keys[i].hashCode() + checkNotNull(vals[i]).hashCode();
+        return result;
     }
 
     @Override
     public Attributes clone() {
-        if (attributes == null)
-            return new Attributes();
-
         Attributes clone;
         try {
             clone = (Attributes) super.clone();
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
         }
-        clone.attributes = new LinkedHashMap<String, Attribute>(attributes.size());
-        for (Attribute attribute: this)
-            clone.attributes.put(attribute.getKey(), attribute.clone());
+        clone.owner = null;
+        if (size == 0) {
+            clone.keys = empty;
+            clone.vals = empty;
+        } else {
+            clone.keys = new String[size];
+            clone.vals = new String[size];
+            System.arraycopy(keys, 0, clone.keys, 0, size);
+            System.arraycopy(vals, 0, clone.vals, 0, size);
+        }
         return clone;
     }
 
-    private class Dataset extends AbstractMap<String, String> {
+    int indexOfKey(String key) {
+        for (int i = 0; i < size; i++) {
+            if (key.equals(keys[i]))
+                return i;
+        }
+        return notFound;
+    }
+
+    // sets the value of an attribute view (if still present); returns the old value, or null if not present
+    String setValue(String key, String value) {
+        int i = indexOfKey(key);
+        if (i == notFound)
+            return null;
+        String old = checkNotNull(vals[i]);
+        vals[i] = value;
+        changed(key, old, value);
+        return old;
+    }
 
-        private Dataset() {
-            if (attributes == null)
-                attributes = new LinkedHashMap<String, Attribute>(2);
+    // renames an attribute view (if still present)
+    void setKey(String oldKey, String newKey) {
+        int i = indexOfKey(oldKey);
+        if (i != notFound) {
+            keys[i] = newKey;
+            changed(oldKey, vals[i], null);
+            changed(newKey, null, vals[i]);
         }
+    }
+
+    private void changed(String key, String oldValue, String newValue) {
+        if (owner != null)
+            owner.attributeChanged(key, checkNotNull(oldValue), checkNotNull(newValue));
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        int capacity = keys.length;
+        if (capacity >= minCapacity)
+            return;
+
+        int newCapacity = capacity >= initialCapacity ? capacity * 2 : initialCapacity;
+        if (minCapacity > newCapacity)
+            newCapacity = minCapacity;
+        String[] newKeys = new String[newCapacity];
+        String[] newVals = new String[newCapacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(vals, 0, newVals, 0, size);
+        keys = newKeys;
+        vals = newVals;
+    }
+
+    private static String normalKey(String key) {
+        return key.trim().toLowerCase();
+    }
+
+    // boolean attributes have a null value, and read as empty
+    private static String checkNotNull(String val) {
+        return val == null ? "" : val;
+    }
+
+    private class Dataset extends AbstractMap<String, String> {
+
+        private Dataset() {}
 
         @Override
         public Set<Entry<String, String>> entrySet() {
@@ -225,9 +360,8 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         @Override
         public String put(String key, String value) {
             String dataKey = dataKey(key);
-            String oldValue = hasKey(dataKey) ? attributes.get(dataKey).getValue() : null;
-            Attribute attr = new Attribute(dataKey, value);
-            attributes.put(dataKey, attr);
+            String oldValue = hasKey(dataKey) ? get(dataKey) : null;
+            Attributes.this.put(dataKey, value);
             return oldValue;
         }
 
@@ -249,22 +383,20 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         }
 
         private class DatasetIterator implements Iterator<Map.Entry<String, String>> {
-            private Iterator<Attribute> attrIter = attributes.values().iterator();
-            private Attribute attr;
+            private int i = -1; // index of the current data attribute
             public boolean hasNext() {
-                while (attrIter.hasNext()) {
-                    attr = attrIter.next();
-                    if (attr.isDataAttribute()) return true;
+                while (++i < size) {
+                    if (Attribute.isDataAttribute(keys[i])) return true;
                 }
                 return false;
             }
 
             public Entry<String, String> next() {
-                return new Attribute(attr.getKey().substring(dataPrefix.length()), attr.getValue());
+                return new Attribute(keys[i].substring(dataPrefix.length()), checkNotNull(vals[i]));
             }
 
             public void remove() {
-                attributes.remove(attr.getKey());
+                removeAt(i--);
             }
         }
     }
@@ -19,6 +19,10 @@ public class Document extends Element {
     private QuirksMode quirksMode = QuirksMode.noQuirks;
     private String location;
     private boolean updateMetaCharset = false;
+    private volatile ElementIndex idIndex; // built on first lookup by id, then kept current
+    private boolean indexElements = false;
+    private volatile ElementIndex tagIndex; // built on first lookup when indexElements is set
+    private volatile ElementIndex classIndex;
 
     /**
      Create a new, empty Document.
@@ -194,6 +198,11 @@ public class Document extends Element {
         return super.html(); // no outer wrapper tag
     }
 
+    @Override
+    public <T extends Appendable> T outerHtml(T accum) {
+        return super.html(accum); // no outer wrapper tag
+    }
+
     /**
      Set the text of the {@code body} of this document. Any existing nodes within the body will be cleared.
      @param text unencoded text
@@ -285,8 +294,124 @@ public class Document extends Element {
     public Document clone() {
         Document clone = (Document) super.clone();
         clone.outputSettings = this.outputSettings.clone();
+        clone.idIndex = null;
+        clone.tagIndex = null;
+        clone.classIndex = null;
         return clone;
     }
+
+    /**
+     * Sets whether this document indexes its elements by tag name and by class name. When set, element lookups
+     * ({@link #getElementsByTag(String)}, {@link #getElementsByClass(String)}) and selects with a tag or class in their
+     * subject are found from the index, instead of by testing every element. The indexes are built on first use and
+     * kept current as the document is modified, which adds a cost to modifications; so this suits documents that are
+     * queried many times and seldom modified. (Elements are always indexed by ID.)
+     * <p>Default is <code>false</code>.</p>
+     *
+     * @param index whether to index elements by tag name and class name
+     */
+    public void indexElements(boolean index) {
+        synchronized (this) {
+            indexElements = index;
+            if (!index) {
+                tagIndex = null;
+                classIndex = null;
+            }
+        }
+    }
+
+    /**
+     * Gets whether this document indexes its elements by tag name and by class name.
+     *
+     * @return whether elements are indexed by tag name and class name
+     * @see #indexElements(boolean)
+     */
+    public boolean indexElements() {
+        return indexElements;
+    }
+
+    synchronized ElementIndex idIndex() {
+        if (idIndex == null) {
+            startIndexing();
+            idIndex = new ElementIndex.ById(this);
+        }
+        return idIndex;
+    }
+
+    // the tag name index, or null if not indexing elements
+    synchronized ElementIndex tagIndex() {
+        if (tagIndex == null && indexElements) {
+            startIndexing();
+            tagIndex = new ElementIndex.ByTag(this);
+        }
+        return tagIndex;
+    }
+
+    // the class name index, or null if not indexing elements
+    synchronized ElementIndex classIndex() {
+        if (classIndex == null && indexElements) {
+            startIndexing();
+            classIndex = new ElementIndex.ByClass(this);
+        }
+        return classIndex;
+    }
+
+    // called as an element (and so the elements under it) is added to or removed from this indexed document
+    void updateIndexes(Element el, boolean added) {
+        updateIndex(idIndex, el, added);
+        updateIndex(tagIndex, el, added);
+        updateIndex(classIndex, el, added);
+        markIndexed(el, added);
+    }
+
+    // called before building an index. the first one points the document's elements at it
+    private void startIndexing() {
+        if (indexedIn == null)
+            markIndexed(this, true);
+    }
+
+    // points the elements under root at this document (or at none), so that their changes update its indexes
+    private void markIndexed(Element root, boolean indexed) {
+        for (Element el : root.getAllElements())
+            el.indexedIn = indexed ? this : null;
+    }
+
+    private static void updateIndex(ElementIndex index, Element el, boolean added) {
+        if (index != null) {
+            if (added)
+                index.added(el);
+            else
+                index.removed(el);
+        }
+    }
+
+    // called as an element in this document has its id changed
+    void idChanged(Element el, String oldId, String newId) {
+        if (idIndex != null) {
+            if (oldId.length() > 0)
+                idIndex.remove(el, oldId);
+            if (newId.length() > 0)
+                idIndex.add(el, newId);
+        }
+    }
+
+    // called as an element in this document has its class attribute changed
+    void classChanged(Element el, String oldClasses, String newClasses) {
+        if (classIndex != null) {
+            for (String key : ElementIndex.ByClass.classKeys(oldClasses))
+                classIndex.remove(el, key);
+            for (String key : ElementIndex.ByClass.classKeys(newClasses))
+                classIndex.add(el, key);
+        }
+    }
+
+    // called as an element in this document has its tag name changed
+    void tagChanged(Element el, String oldTag, String newTag) {
+        if (tagIndex != null) {
+            tagIndex.remove(el, oldTag);
+            tagIndex.add(el, newTag);
+        }
+    }
     
     /**
      * Ensures a meta charset (html) or xml declaration (xml) with the current
@@ -312,7 +437,7 @@ public class Document extends Element {
             OutputSettings.Syntax syntax = outputSettings().syntax();
 
             if (syntax == OutputSettings.Syntax.html) {
-                Element metaCharset = select("meta[charset]").first();
+                Element metaCharset = selectFirst("meta[charset]");
 
                 if (metaCharset != null) {
                     metaCharset.attr("charset", charset().displayName());
@@ -373,6 +498,7 @@ public class Document extends Element {
         private Entities.EscapeMode escapeMode = Entities.EscapeMode.base;
         private Charset charset = Charset.forName("UTF-8");
         private CharsetEncoder charsetEncoder = charset.newEncoder();
+        private Entities.CoreCharset coreCharset = Entities.CoreCharset.byName(charset.name());
         private boolean prettyPrint = true;
         private boolean outline = false;
         private int indentAmount = 1;
@@ -423,6 +549,7 @@ public class Document extends Element {
         public OutputSettings charset(Charset charset) {
             this.charset = charset;
             charsetEncoder = charset.newEncoder();
+            coreCharset = Entities.CoreCharset.byName(charset.name());
             return this;
         }
 
@@ -440,6 +567,10 @@ public class Document extends Element {
             return charsetEncoder;
         }
 
+        Entities.CoreCharset coreCharset() {
+            return coreCharset;
+        }
+
         /**
          * Get the document's current output syntax.
          * @return current syntax
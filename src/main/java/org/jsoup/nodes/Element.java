@@ -6,6 +6,7 @@ import org.jsoup.parser.Parser;
 import org.jsoup.parser.Tag;
 import org.jsoup.select.*;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -20,6 +21,9 @@ import java.util.regex.PatternSyntaxException;
  */
 public class Element extends Node {
     private Tag tag;
+    private List<Element> childElements; // cached element children; null when the child nodes have changed
+    private int elementIndex; // this element's index in its parent's childElements, valid when that is cached
+    Document indexedIn; // the document whose element indexes hold this element; null if it is in none (e.g. parsing)
 
     private static final Pattern classSplit = Pattern.compile("\\s+");
 
@@ -74,7 +78,10 @@ public class Element extends Node {
      */
     public Element tagName(String tagName) {
         Validate.notEmpty(tagName, "Tag name must not be empty.");
+        Tag old = tag;
         tag = Tag.valueOf(tagName);
+        if (indexedIn != null)
+            indexedIn.tagChanged(this, old.getName(), tag.getName());
         return this;
     }
 
@@ -184,7 +191,16 @@ public class Element extends Node {
      * @see #childNode(int)
      */
     public Element child(int index) {
-        return children().get(index);
+        return childElementsList().get(index);
+    }
+
+    /**
+     * Get the number of child elements of this element. This is a cheaper alternative to {@code children().size()}.
+     * @return the number of child elements
+     * @see #children()
+     */
+    public int childrenSize() {
+        return childElementsList().size();
     }
 
     /**
@@ -197,13 +213,51 @@ public class Element extends Node {
      * @see #childNodes()
      */
     public Elements children() {
-        // create on the fly rather than maintaining two lists. if gets slow, memoize, and mark dirty on change
-        List<Element> elements = new ArrayList<Element>(childNodes.size());
-        for (Node node : childNodes) {
-            if (node instanceof Element)
-                elements.add((Element) node);
+        return new Elements(childElementsList());
+    }
+
+    /**
+     * Maintains a cached list of the child elements, and each child's index in it. The cache is built on first use and
+     * dropped whenever the child nodes change.
+     * @return the live cached list; must not be modified or leaked
+     */
+    private List<Element> childElementsList() {
+        List<Element> elements = childElements;
+        if (elements == null) {
+            final int size = childNodes.size();
+            elements = new ArrayList<Element>(size);
+            for (int i = 0; i < size; i++) {
+                Node node = childNodes.get(i);
+                if (node instanceof Element) {
+                    Element el = (Element) node;
+                    el.elementIndex = elements.size();
+                    elements.add(el);
+                }
+            }
+            childElements = elements;
         }
-        return new Elements(elements);
+        return elements;
+    }
+
+    @Override
+    void nodelistChanged() {
+        childElements = null;
+    }
+
+    @Override
+    void indexChild(Node child, boolean added) {
+        if (indexedIn != null && child instanceof Element)
+            indexedIn.updateIndexes((Element) child, added);
+    }
+
+    @Override
+    void attributeChanged(String key, String oldValue, String newValue) {
+        if (indexedIn == null)
+            return;
+        if (key.equals("id"))
+            indexedIn.idChanged(this, oldValue, newValue);
+        else if (key.equals("class"))
+            indexedIn.classChanged(this, oldValue, newValue);
     }
 
     /**
@@ -272,6 +326,32 @@ public class Element extends Node {
     public Elements select(String cssQuery) {
         return Selector.select(cssQuery, this);
     }
+
+    /**
+     * Find the first element that matches the {@link Selector} CSS query, with this element as the starting context.
+     * This is a more efficient alternative to {@code select(cssQuery).first()}, as the search stops at the first
+     * match.
+     *
+     * @param cssQuery a {@link Selector} CSS-like query
+     * @return the first matching element, or <b>null</b> if there is no match.
+     * @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     * @see #select(String)
+     */
+    public Element selectFirst(String cssQuery) {
+        return Selector.selectFirst(cssQuery, this);
+    }
+
+    /**
+     * Test if this element, or any of its descendants, matches the {@link Selector} CSS query. The search stops at the
+     * first match.
+     *
+     * @param cssQuery a {@link Selector} CSS-like query
+     * @return true if any element matches the query
+     * @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     */
+    public boolean matchesAny(String cssQuery) {
+        return selectFirst(cssQuery) != null;
+    }
     
     /**
      * Add a node child node to this element.
@@ -287,6 +367,8 @@ public class Element extends Node {
         ensureChildNodes();
         childNodes.add(child);
         child.setSiblingIndex(childNodes.size() - 1);
+        nodelistChanged();
+        indexChild(child, true);
         return this;
     }
 
@@ -454,7 +536,10 @@ public class Element extends Node {
      * @return this element
      */
     public Element empty() {
+        for (Node child : childNodes)
+            indexChild(child, false);
         childNodes.clear();
+        nodelistChanged();
         return this;
     }
 
@@ -508,7 +593,7 @@ public class Element extends Node {
         if (parentNode == null)
             return new Elements(0);
 
-        List<Element> elements = parent().children();
+        List<Element> elements = parent().childElementsList();
         Elements siblings = new Elements(elements.size() - 1);
         for (Element el: elements)
             if (el != this)
@@ -527,9 +612,8 @@ public class Element extends Node {
      */
     public Element nextElementSibling() {
         if (parentNode == null) return null;
-        List<Element> siblings = parent().children();
-        Integer index = indexInList(this, siblings);
-        Validate.notNull(index);
+        List<Element> siblings = parent().childElementsList();
+        int index = elementIndex;
         if (siblings.size() > index+1)
             return siblings.get(index+1);
         else
@@ -543,9 +627,8 @@ public class Element extends Node {
      */
     public Element previousElementSibling() {
         if (parentNode == null) return null;
-        List<Element> siblings = parent().children();
-        Integer index = indexInList(this, siblings);
-        Validate.notNull(index);
+        List<Element> siblings = parent().childElementsList();
+        int index = elementIndex;
         if (index > 0)
             return siblings.get(index-1);
         else
@@ -558,7 +641,7 @@ public class Element extends Node {
      */
     public Element firstElementSibling() {
         // todo: should firstSibling() exclude this?
-        List<Element> siblings = parent().children();
+        List<Element> siblings = parent().childElementsList();
         return siblings.size() > 1 ? siblings.get(0) : null;
     }
     
@@ -569,7 +652,8 @@ public class Element extends Node {
      */
     public Integer elementSiblingIndex() {
        if (parent() == null) return 0;
-       return indexInList(this, parent().children()); 
+       parent().childElementsList(); // ensures the index is current
+       return elementIndex;
     }
 
     /**
@@ -577,22 +661,10 @@ public class Element extends Node {
      * @return the last sibling that is an element (aka the parent's last element child) 
      */
     public Element lastElementSibling() {
-        List<Element> siblings = parent().children();
+        List<Element> siblings = parent().childElementsList();
         return siblings.size() > 1 ? siblings.get(siblings.size() - 1) : null;
     }
     
-    private static <E extends Element> Integer indexInList(Element search, List<E> elements) {
-        Validate.notNull(search);
-        Validate.notNull(elements);
-
-        for (int i = 0; i < elements.size(); i++) {
-            E element = elements.get(i);
-            if (element == search)
-                return i;
-        }
-        return null;
-    }
-
     // DOM type methods
 
     /**
@@ -604,6 +676,10 @@ public class Element extends Node {
         Validate.notEmpty(tagName);
         tagName = tagName.toLowerCase().trim();
 
+        Document doc = ownerDocument();
+        ElementIndex index = doc != null ? doc.tagIndex() : null;
+        if (index != null)
+            return index.get(tagName, this);
         return Collector.collect(new Evaluator.Tag(tagName), this);
     }
 
@@ -618,14 +694,34 @@ public class Element extends Node {
      */
     public Element getElementById(String id) {
         Validate.notEmpty(id);
-        
-        Elements elements = Collector.collect(new Evaluator.Id(id), this);
+
+        Document doc = ownerDocument();
+        if (doc == null)
+            return Collector.findFirst(new Evaluator.Id(id), this);
+        Elements elements = doc.idIndex().get(id, this);
         if (elements.size() > 0)
             return elements.get(0);
         else
             return null;
     }
 
+    /**
+     * Find elements by ID, including or under this element. IDs should be unique within a document, but where they
+     * are not, all of the matching elements are returned.
+     * <p>
+     * If this element is in a {@link Document}, the document's index of IDs is used, instead of searching the tree.
+     * @param id The ID to search for.
+     * @return the matching elements, in document order; empty if none found.
+     */
+    public Elements getElementsById(String id) {
+        Validate.notEmpty(id);
+
+        Document doc = ownerDocument();
+        if (doc == null)
+            return Collector.collect(new Evaluator.Id(id), this);
+        return doc.idIndex().get(id, this);
+    }
+
     /**
      * Find elements that have this class, including or under this element. Case insensitive.
      * <p>
@@ -640,6 +736,10 @@ public class Element extends Node {
     public Elements getElementsByClass(String className) {
         Validate.notEmpty(className);
 
+        Document doc = ownerDocument();
+        ElementIndex index = doc != null ? doc.classIndex() : null;
+        if (index != null)
+            return index.get(className.toLowerCase(), this);
         return Collector.collect(new Evaluator.Class(className), this);
     }
 
@@ -1133,8 +1233,8 @@ public class Element extends Node {
         return this;
     }
 
-    void outerHtmlHead(StringBuilder accum, int depth, Document.OutputSettings out) {
-        if (accum.length() > 0 && out.prettyPrint() && (tag.formatAsBlock() || (parent() != null && parent().tag().formatAsBlock()) || out.outline()) )
+    void outerHtmlHead(Appendable accum, int depth, Document.OutputSettings out) throws IOException {
+        if (out.prettyPrint() && (tag.formatAsBlock() || (parent() != null && parent().tag().formatAsBlock()) || out.outline()) )
             indent(accum, depth, out);
         accum
                 .append("<")
@@ -1152,7 +1252,7 @@ public class Element extends Node {
             accum.append(">");
     }
 
-    void outerHtmlTail(StringBuilder accum, int depth, Document.OutputSettings out) {
+    void outerHtmlTail(Appendable accum, int depth, Document.OutputSettings out) throws IOException {
         if (!(childNodes.isEmpty() && tag.isSelfClosing())) {
             if (out.prettyPrint() && (!childNodes.isEmpty() && (
                     tag.formatAsBlock() || (out.outline() && (childNodes.size()>1 || (childNodes.size()==1 && !(childNodes.get(0) instanceof TextNode))))
@@ -1175,9 +1275,22 @@ public class Element extends Node {
         return getOutputSettings().prettyPrint() ? accum.toString().trim() : accum.toString();
     }
 
-    private void html(StringBuilder accum) {
+    /**
+     * Write the element's inner HTML to an Appendable, such as a {@link java.io.Writer}, as it is generated; rather
+     * than building it as a String first. Unlike {@link #html()}, the output is not trimmed, so it keeps any
+     * whitespace at the start or end of the element's text.
+     *
+     * @param accum Appendable to write the HTML to
+     * @param <T> the type of Appendable
+     * @return the Appendable, for chaining
+     * @throws org.jsoup.UncheckedIOException if the Appendable throws an IOException
+     * @see #outerHtml(Appendable)
+     */
+    public <T extends Appendable> T html(T accum) {
+        NodeTraversor traversor = new NodeTraversor(new OuterHtmlVisitor(accum, getOutputSettings())); // one output
         for (Node node : childNodes)
-            node.outerHtml(accum);
+            traversor.traverse(node);
+        return accum;
     }
     
     /**
@@ -1218,4 +1331,11 @@ public class Element extends Node {
     public Element clone() {
         return (Element) super.clone();
     }
+
+    @Override
+    protected Element doClone(Node parent) {
+        Element clone = (Element) super.doClone(parent);
+        clone.indexedIn = null; // not in any index until added to an indexed document
+        return clone;
+    }
 }
@@ -0,0 +1,236 @@
+package org.jsoup.nodes;
+
+import org.jsoup.select.Collector;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * An index of the elements of a document by a key (such as their id), holding the elements with each key in document
+ * order.
+ * <p>
+ * The index is kept current as the document is modified. A removed element is dropped from the lists of its keys. As
+ * the position of an added element amongst those already indexed is not known, a key it shares with another element is
+ * marked stale, and the elements with that key are collected again on its next lookup.
+ * </p>
+ * <p>
+ * All access is synchronized on the index: a lookup may collect a stale key again, so concurrent lookups (which are
+ * safe on an unmodified document) modify the index too.
+ * </p>
+ */
+abstract class ElementIndex {
+    private final Document doc;
+    private final Map<String, List<Element>> index = new HashMap<String, List<Element>>();
+    private final Set<String> stale = new HashSet<String>();
+
+    ElementIndex(Document doc) {
+        this.doc = doc;
+        build(doc);
+    }
+
+    /**
+     * Get the keys an element is indexed by.
+     * @param el element
+     * @return the element's keys; empty if none
+     */
+    abstract Collection<String> keys(Element el);
+
+    /**
+     * Get an evaluator that matches the elements with a key, to collect a stale key again.
+     * @param key key
+     * @return evaluator
+     */
+    abstract Evaluator evaluator(String key);
+
+    /**
+     * Get the elements with a key, in document order.
+     * @param key the key
+     * @param root the element to find elements under (including itself)
+     * @return the matching elements; empty if none
+     */
+    synchronized Elements get(String key, Element root) {
+        List<Element> elements = index.get(key);
+        if (stale.remove(key)) {
+            elements = Collector.collect(evaluator(key), doc);
+            if (!elements.isEmpty())
+                index.put(key, elements);
+        }
+        if (elements == null)
+            return new Elements(0);
+        if (root == doc)
+            return new Elements(elements);
+
+        Elements found = new Elements();
+        for (Element el : elements) {
+            if (isUnder(el, root))
+                found.add(el);
+        }
+        return found;
+    }
+
+    /**
+     * Index an element, and the elements under it, that have been added to the document.
+     * @param root the added element
+     */
+    synchronized void added(Element root) {
+        for (Element el : root.getAllElements()) {
+            for (String key : keys(el))
+                add(el, key);
+        }
+    }
+
+    /**
+     * Drop an element, and the elements under it, that are being removed from the document.
+     * @param root the removed element
+     */
+    synchronized void removed(Element root) {
+        for (Element el : root.getAllElements()) {
+            for (String key : keys(el))
+                remove(el, key);
+        }
+    }
+
+    /**
+     * Index an element by a key it has gained.
+     */
+    synchronized void add(Element el, String key) {
+        if (stale.contains(key))
+            return;
+        List<Element> elements = index.get(key);
+        if (elements == null) {
+            elements = new ArrayList<Element>(1);
+            elements.add(el);
+            index.put(key, elements);
+        } else if (!containsSame(elements, el)) {
+            index.remove(key);
+            stale.add(key);
+        }
+    }
+
+    /**
+     * Drop an element from a key it has lost.
+     */
+    synchronized void remove(Element el, String key) {
+        List<Element> elements = index.get(key);
+        if (elements == null)
+            return;
+        for (int i = 0; i < elements.size(); i++) {
+            if (elements.get(i) == el) {
+                elements.remove(i);
+                break;
+            }
+        }
+        if (elements.isEmpty())
+            index.remove(key);
+    }
+
+    private void build(Element root) {
+        for (Element el : root.getAllElements()) {
+            for (String key : keys(el)) {
+                List<Element> elements = index.get(key);
+                if (elements == null) {
+                    elements = new ArrayList<Element>(1);
+                    index.put(key, elements);
+                }
+                elements.add(el);
+            }
+        }
+    }
+
+    private static boolean containsSame(List<Element> elements, Element el) {
+        for (Element e : elements) {
+            if (e == el)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isUnder(Element el, Element root) {
+        for (Node node = el; node != null; node = node.parentNode) {
+            if (node == root)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indexes elements by their id.
+     */
+    static final class ById extends ElementIndex {
+        ById(Document doc) {
+            super(doc);
+        }
+
+        @Override
+        Collection<String> keys(Element el) {
+            String id = el.id();
+            return id.length() == 0 ? Collections.<String>emptySet() : Collections.singleton(id);
+        }
+
+        @Override
+        Evaluator evaluator(String key) {
+            return new Evaluator.Id(key);
+        }
+    }
+
+    /**
+     * Indexes elements by their tag name.
+     */
+    static final class ByTag extends ElementIndex {
+        ByTag(Document doc) {
+            super(doc);
+        }
+
+        @Override
+        Collection<String> keys(Element el) {
+            return Collections.singleton(el.tagName());
+        }
+
+        @Override
+        Evaluator evaluator(String key) {
+            return new Evaluator.Tag(key);
+        }
+    }
+
+    /**
+     * Indexes elements by their class names, lower-cased as classes match case insensitively.
+     */
+    static final class ByClass extends ElementIndex {
+        private static final Pattern classSplit = Pattern.compile("\\s+");
+
+        ByClass(Document doc) {
+            super(doc);
+        }
+
+        @Override
+        Collection<String> keys(Element el) {
+            return classKeys(el.className());
+        }
+
+        @Override
+        Evaluator evaluator(String key) {
+            return new Evaluator.Class(key);
+        }
+
+        static Collection<String> classKeys(String classAttr) {
+            if (classAttr.length() == 0)
+                return Collections.emptySet();
+            Set<String> keys = new LinkedHashSet<String>();
+            for (String name : classSplit.split(classAttr)) {
+                if (name.length() > 0)
+                    keys.add(name.toLowerCase());
+            }
+            return keys;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.jsoup.nodes;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.StringUtil;
 import org.jsoup.parser.Parser;
 
@@ -23,14 +24,33 @@ public class Entities {
         extended(fullByVal);
 
         private Map<Character, String> map;
+        private final char[] escapeChars; // chars with a named escape, sorted for binary search
+        private final String[] escapes; // the named escape (e.g. "&amp;") of each char in escapeChars
 
         EscapeMode(Map<Character, String> map) {
             this.map = map;
+            escapeChars = new char[map.size()];
+            escapes = new String[map.size()];
+            int i = 0;
+            for (Map.Entry<Character, String> entry : new TreeMap<Character, String>(map).entrySet()) {
+                escapeChars[i] = entry.getKey();
+                escapes[i] = "&" + entry.getValue() + ";";
+                i++;
+            }
         }
 
         public Map<Character, String> getMap() {
             return map;
         }
+
+        /**
+         * Get the named escape of a char, without boxing it for a map lookup.
+         * @return the escape (e.g. "&amp;"), or null if the char has no named escape in this mode.
+         */
+        String escape(char c) {
+            int i = Arrays.binarySearch(escapeChars, c);
+            return i >= 0 ? escapes[i] : null;
+        }
     }
 
     private static final Map<String, Character> full;
@@ -68,23 +88,41 @@ public class Entities {
     public static Character getCharacterByName(String name) {
         return full.get(name);
     }
-    
-    static String escape(String string, Document.OutputSettings out) {
+
+    /**
+     * Get the names of all the known named entities (the extended set, which includes the base set).
+     * @return an unmodifiable set of entity names; look up their values with {@link #getCharacterByName(String)}
+     */
+    public static Set<String> entityNames() {
+        return Collections.unmodifiableSet(full.keySet());
+    }
+
+    /**
+     * HTML escape a string of text, as it would be in a text node, using the escape mode and charset of the output
+     * settings.
+     * @param string text to escape
+     * @param out output settings
+     * @return the escaped text
+     */
+    public static String escape(String string, Document.OutputSettings out) {
         StringBuilder accum = new StringBuilder(string.length() * 2);
-        escape(accum, string, out, false, false, false);
+        try {
+            escape(accum, string, out, false, false, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         return accum.toString();
     }
 
     // this method is ugly, and does a lot. but other breakups cause rescanning and stringbuilder generations
-    static void escape(StringBuilder accum, String string, Document.OutputSettings out,
-                       boolean inAttribute, boolean normaliseWhite, boolean stripLeadingWhite) {
+    static void escape(Appendable accum, String string, Document.OutputSettings out,
+                       boolean inAttribute, boolean normaliseWhite, boolean stripLeadingWhite) throws IOException {
 
         boolean lastWasWhite = false;
         boolean reachedNonWhite = false;
         final EscapeMode escapeMode = out.escapeMode();
         final CharsetEncoder encoder = out.encoder();
-        final CoreCharset coreCharset = CoreCharset.byName(encoder.charset().name());
-        final Map<Character, String> map = escapeMode.getMap();
+        final CoreCharset coreCharset = out.coreCharset();
         final int length = string.length();
 
         int codePoint;
@@ -137,17 +175,19 @@ public class Entities {
                             accum.append(c);
                         break;
                     default:
-                        if (canEncode(coreCharset, c, encoder))
+                        if (canEncode(coreCharset, c, encoder)) {
                             accum.append(c);
-                        else if (map.containsKey(c))
-                            accum.append('&').append(map.get(c)).append(';');
-                        else
-                            accum.append("&#x").append(Integer.toHexString(codePoint)).append(';');
+                        } else {
+                            final String escape = escapeMode.escape(c);
+                            if (escape != null)
+                                accum.append(escape);
+                            else
+                                accum.append("&#x").append(Integer.toHexString(codePoint)).append(';');
+                        }
                 }
             } else {
-                final String c = new String(Character.toChars(codePoint));
-                if (encoder.canEncode(c)) // uses fallback encoder for simplicity
-                    accum.append(c);
+                if (canEncode(coreCharset, string, offset, encoder))
+                    accum.append(string, offset, offset + 2); // the surrogate pair
                 else
                     accum.append("&#x").append(Integer.toHexString(codePoint)).append(';');
             }
@@ -194,10 +234,23 @@ public class Entities {
         }
     }
 
-    private enum CoreCharset {
+    private static boolean canEncode(final CoreCharset charset, final String string, final int offset,
+                                     final CharsetEncoder fallback) {
+        // supplementary code point, as the surrogate pair at offset
+        switch (charset) {
+            case ascii:
+                return false;
+            case utf:
+                return true;
+            default:
+                return fallback.canEncode(string.substring(offset, offset + 2)); // uses fallback encoder for simplicity
+        }
+    }
+
+    enum CoreCharset {
         ascii, utf, fallback;
 
-        private static CoreCharset byName(String name) {
+        static CoreCharset byName(String name) {
             if (name.equals("US-ASCII"))
                 return ascii;
             if (name.startsWith("UTF-")) // covers UTF-8, UTF-16, et al
@@ -1,11 +1,17 @@
 package org.jsoup.nodes;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.StringUtil;
 import org.jsoup.helper.Validate;
 import org.jsoup.parser.Parser;
 import org.jsoup.select.NodeTraversor;
 import org.jsoup.select.NodeVisitor;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -37,6 +43,7 @@ public abstract class Node implements Cloneable {
         childNodes = EMPTY_NODES;
         this.baseUri = baseUri.trim();
         this.attributes = attributes;
+        attributes.owner = this;
     }
 
     protected Node(String baseUri) {
@@ -250,12 +257,13 @@ public abstract class Node implements Cloneable {
      * @return the Document associated with this Node, or null if there is no such Document.
      */
     public Document ownerDocument() {
-        if (this instanceof Document)
-            return (Document) this;
-        else if (parentNode == null)
-            return null;
-        else
-            return parentNode.ownerDocument();
+        Node node = this;
+        while (!(node instanceof Document)) {
+            node = node.parentNode;
+            if (node == null)
+                return null;
+        }
+        return (Document) node;
     }
     
     /**
@@ -410,19 +418,24 @@ public abstract class Node implements Cloneable {
         if (in.parentNode != null)
             in.parentNode.removeChild(in);
         
+        indexChild(out, false);
         final int index = out.siblingIndex;
         childNodes.set(index, in);
         in.parentNode = this;
         in.setSiblingIndex(index);
         out.parentNode = null;
+        nodelistChanged();
+        indexChild(in, true);
     }
 
     protected void removeChild(Node out) {
         Validate.isTrue(out.parentNode == this);
+        indexChild(out, false);
         final int index = out.siblingIndex;
         childNodes.remove(index);
         reindexChildren(index);
         out.parentNode = null;
+        nodelistChanged();
     }
 
     protected void addChildren(Node... children) {
@@ -432,7 +445,9 @@ public abstract class Node implements Cloneable {
             ensureChildNodes();
             childNodes.add(child);
             child.setSiblingIndex(childNodes.size()-1);
+            indexChild(child, true);
         }
+        nodelistChanged();
     }
 
     protected void addChildren(int index, Node... children) {
@@ -442,8 +457,10 @@ public abstract class Node implements Cloneable {
             reparentChild(in);
             ensureChildNodes();
             childNodes.add(index, in);
+            indexChild(in, true);
         }
         reindexChildren(index);
+        nodelistChanged();
     }
 
     protected void ensureChildNodes() {
@@ -452,6 +469,30 @@ public abstract class Node implements Cloneable {
         }
     }
 
+    /**
+     * Called after the child node list has been modified, so that subclasses can invalidate derived state.
+     */
+    void nodelistChanged() {
+        // none by default
+    }
+
+    /**
+     * Called by this node's attributes when one is set or removed, so that subclasses can update derived state.
+     * @param key the (normalised) attribute key
+     * @param oldValue the previous value; empty if the attribute was not set
+     * @param newValue the new value; empty if the attribute has been removed
+     */
+    void attributeChanged(String key, String oldValue, String newValue) {
+        // none by default
+    }
+
+    /**
+     * Called as a child is added to or removed from this node, so that an indexed document can keep its indexes current.
+     */
+    void indexChild(Node child, boolean added) {
+        // none by default
+    }
+
     protected void reparentChild(Node child) {
         if (child.parentNode != null)
             child.parentNode.removeChild(child);
@@ -547,8 +588,38 @@ public abstract class Node implements Cloneable {
         return accum.toString();
     }
 
-    protected void outerHtml(StringBuilder accum) {
+    /**
+     * Write the outer HTML of this node to an Appendable, such as a {@link java.io.Writer}, as it is generated; rather
+     * than building it as a String first. The HTML written is the same as {@link #outerHtml()} returns, whatever the
+     * type of the Appendable, or what it already holds.
+     *
+     * @param accum Appendable to write the HTML to
+     * @param <T> the type of Appendable
+     * @return the Appendable, for chaining
+     * @throws org.jsoup.UncheckedIOException if the Appendable throws an IOException
+     * @see #writeTo(OutputStream)
+     */
+    public <T extends Appendable> T outerHtml(T accum) {
         new NodeTraversor(new OuterHtmlVisitor(accum, getOutputSettings())).traverse(this);
+        return accum;
+    }
+
+    /**
+     * Write the outer HTML of this node to an OutputStream, encoded in the charset of the document's output settings.
+     * The output is buffered and flushed, but the stream is not closed.
+     *
+     * @param out OutputStream to write the HTML to
+     * @throws IOException if the stream throws an IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Validate.notNull(out);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, getOutputSettings().charset()));
+        try {
+            outerHtml(writer);
+        } catch (UncheckedIOException e) {
+            throw e.ioException();
+        }
+        writer.flush();
     }
 
     // if this node has no document (or parent), retrieve the default output settings
@@ -560,17 +631,19 @@ public abstract class Node implements Cloneable {
      Get the outer HTML of this node.
      @param accum accumulator to place HTML into
      */
-    abstract void outerHtmlHead(StringBuilder accum, int depth, Document.OutputSettings out);
+    abstract void outerHtmlHead(Appendable accum, int depth, Document.OutputSettings out) throws IOException;
 
-    abstract void outerHtmlTail(StringBuilder accum, int depth, Document.OutputSettings out);
+    abstract void outerHtmlTail(Appendable accum, int depth, Document.OutputSettings out) throws IOException;
 
     @Override
     public String toString() {
         return outerHtml();
     }
 
-    protected void indent(StringBuilder accum, int depth, Document.OutputSettings out) {
-        accum.append("\n").append(StringUtil.padding(depth * out.indentAmount()));
+    // a newline and indent; not written before anything else has been, so output never starts with one
+    protected void indent(Appendable accum, int depth, Document.OutputSettings out) throws IOException {
+        if (((HtmlOutput) accum).written)
+            accum.append("\n").append(StringUtil.padding(depth * out.indentAmount()));
     }
 
     /**
@@ -628,6 +701,7 @@ public abstract class Node implements Cloneable {
                 currParent.childNodes.set(i, childClone);
                 nodesToProcess.add(childClone);
             }
+            currParent.nodelistChanged();
         }
 
         return thisClone;
@@ -649,31 +723,78 @@ public abstract class Node implements Cloneable {
         clone.parentNode = parent; // can be null, to create an orphan split
         clone.siblingIndex = parent == null ? 0 : siblingIndex;
         clone.attributes = attributes != null ? attributes.clone() : null;
+        if (clone.attributes != null)
+            clone.attributes.owner = clone;
         clone.baseUri = baseUri;
         clone.childNodes = new ArrayList<Node>(childNodes.size());
 
         for (Node child: childNodes)
             clone.childNodes.add(child);
+        clone.nodelistChanged(); // drop any state copied from this node
 
         return clone;
     }
 
-    private static class OuterHtmlVisitor implements NodeVisitor {
-        private StringBuilder accum;
-        private Document.OutputSettings out;
+    static class OuterHtmlVisitor implements NodeVisitor {
+        private final HtmlOutput accum;
+        private final Document.OutputSettings out;
 
-        OuterHtmlVisitor(StringBuilder accum, Document.OutputSettings out) {
-            this.accum = accum;
+        OuterHtmlVisitor(Appendable accum, Document.OutputSettings out) {
+            this.accum = new HtmlOutput(accum);
             this.out = out;
         }
 
         public void head(Node node, int depth) {
-            node.outerHtmlHead(accum, depth, out);
+            try {
+                node.outerHtmlHead(accum, depth, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
 
         public void tail(Node node, int depth) {
-            if (!node.nodeName().equals("#text")) // saves a void hit.
-                node.outerHtmlTail(accum, depth, out);
+            if (!node.nodeName().equals("#text")) { // saves a void hit.
+                try {
+                    node.outerHtmlTail(accum, depth, out);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes through to the destination of outer HTML, recording if anything has been written yet; so the output does
+     * not depend on what (if anything) the destination already holds, or on its type.
+     */
+    static final class HtmlOutput implements Appendable {
+        private final Appendable dest;
+        boolean written = false;
+
+        HtmlOutput(Appendable dest) {
+            this.dest = dest;
+        }
+
+        public Appendable append(CharSequence csq) throws IOException {
+            if (csq == null || csq.length() > 0) {
+                written = true;
+                dest.append(csq);
+            }
+            return this;
+        }
+
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            if (csq == null || end > start) {
+                written = true;
+                dest.append(csq, start, end);
+            }
+            return this;
+        }
+
+        public Appendable append(char c) throws IOException {
+            written = true;
+            dest.append(c);
+            return this;
         }
     }
 }
@@ -0,0 +1,340 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.DataUtil;
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Parses a batch of documents concurrently, on a caller supplied {@link Executor}.
+ * <p>
+ * The inputs are pulled from an iterator only as results are consumed, so at most {@code maxInFlight} documents are
+ * being parsed, or are parsed and waiting to be collected, at any time. This bounds the memory held by the batch, and
+ * a slow consumer holds back the parsing, rather than results piling up. Results are returned either in the order of
+ * the inputs, or in the order they complete.
+ * </p>
+ * <p>
+ * Each thread of the executor parses with its own {@link Parser} (of the same kind and settings as the one the batch
+ * was created with), which is reused for every document that thread parses. An input that fails to parse, e.g. a file
+ * that cannot be read, does not stop the batch: its {@link Result} holds the error instead of a document.
+ * </p>
+ * <p>
+ * A BatchParser may be shared between threads, and its {@link #parse} called concurrently; each returned iterator
+ * should be consumed by one thread.
+ * </p>
+ * <pre>
+ * ExecutorService pool = Executors.newFixedThreadPool(4);
+ * BatchParser batch = new BatchParser(pool, 16);
+ * Iterator&lt;BatchParser.Result&gt; results = batch.parse(inputs, false);
+ * while (results.hasNext()) {
+ *     BatchParser.Result result = results.next();
+ *     if (result.isSuccess())
+ *         process(result.document());
+ * }
+ * </pre>
+ */
+public class BatchParser {
+    private final Executor executor;
+    private final int maxInFlight;
+    private final ThreadLocal<Parser> parsers;
+
+    /**
+     * Create a batch parser that parses HTML.
+     * @param executor executor to run the parses on
+     * @param maxInFlight the maximum number of documents parsing, or parsed and not yet collected, per batch
+     */
+    public BatchParser(Executor executor, int maxInFlight) {
+        this(executor, maxInFlight, Parser.htmlParser());
+    }
+
+    /**
+     * Create a batch parser.
+     * @param executor executor to run the parses on
+     * @param maxInFlight the maximum number of documents parsing, or parsed and not yet collected, per batch
+     * @param parser the parser to use as a template: each executor thread parses with its own parser of the same kind
+     * (HTML or XML) and settings, as they are when the batch parser is created. The template itself is not used to
+     * parse. It must use the stock HTML or XML tree builder; a parser with a custom tree builder can not be copied.
+     */
+    public BatchParser(Executor executor, int maxInFlight, Parser parser) {
+        Validate.notNull(executor);
+        Validate.notNull(parser);
+        Validate.isTrue(maxInFlight > 0, "maxInFlight must be positive");
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        final Parser template = parser.copy(); // checks the parser can be copied, and fixes its settings
+        this.parsers = new ThreadLocal<Parser>() {
+            @Override
+            protected Parser initialValue() {
+                return template.copy();
+            }
+        };
+    }
+
+    /**
+     * Parse a batch of inputs.
+     * @param inputs inputs to parse. Inputs are pulled from the iterator as results are consumed.
+     * @param ordered true to return results in the order of their inputs; false to return them as they complete
+     * @return the results, one per input. The iterator blocks in {@code hasNext()} and {@code next()} until the
+     * next result is ready.
+     */
+    public Iterator<Result> parse(Iterator<Input> inputs, boolean ordered) {
+        Validate.notNull(inputs);
+        return new Results(inputs, ordered);
+    }
+
+    /**
+     * Parse a batch of inputs.
+     * @param inputs inputs to parse
+     * @param ordered true to return results in the order of their inputs; false to return them as they complete
+     * @return the results, one per input
+     * @see #parse(Iterator, boolean)
+     */
+    public Iterator<Result> parse(Iterable<Input> inputs, boolean ordered) {
+        Validate.notNull(inputs);
+        return parse(inputs.iterator(), ordered);
+    }
+
+    private Result parse(Input input, int index) {
+        try {
+            return new Result(input, index, input.parse(parsers.get()), null);
+        } catch (IOException e) {
+            return new Result(input, index, null, e);
+        } catch (RuntimeException e) {
+            return new Result(input, index, null, e);
+        }
+    }
+
+    private final class Results implements Iterator<Result> {
+        private final Iterator<Input> inputs;
+        private final boolean ordered;
+        private final LinkedList<FutureTask<Result>> pending = new LinkedList<FutureTask<Result>>(); // in input order
+        private final BlockingQueue<FutureTask<Result>> completed = new LinkedBlockingQueue<FutureTask<Result>>();
+        private int inFlight = 0;
+        private int submitted = 0;
+
+        Results(Iterator<Input> inputs, boolean ordered) {
+            this.inputs = inputs;
+            this.ordered = ordered;
+        }
+
+        public boolean hasNext() {
+            fill();
+            return inFlight > 0;
+        }
+
+        public Result next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            FutureTask<Result> task;
+            try {
+                task = ordered ? pending.removeFirst() : completed.take();
+                Result result = task.get();
+                inFlight--;
+                fill();
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a parse result", e);
+            } catch (ExecutionException e) { // the parse threw an Error; other exceptions are held in the result
+                Throwable cause = e.getCause();
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void fill() {
+            while (inFlight < maxInFlight && inputs.hasNext()) {
+                final Input input = inputs.next();
+                Validate.notNull(input);
+                final int index = submitted;
+                FutureTask<Result> task = new FutureTask<Result>(new Callable<Result>() {
+                    public Result call() {
+                        return parse(input, index);
+                    }
+                }) {
+                    @Override
+                    protected void done() {
+                        if (!ordered)
+                            completed.add(this);
+                    }
+                };
+                executor.execute(task);
+                if (ordered)
+                    pending.add(task);
+                submitted++;
+                inFlight++;
+            }
+        }
+    }
+
+    /**
+     * An input to a batch parse: a byte array, file, or input stream, with its charset and base URI.
+     */
+    public static abstract class Input {
+        private final String charsetName;
+        private final String baseUri;
+
+        private Input(String charsetName, String baseUri) {
+            Validate.notNull(baseUri);
+            this.charsetName = charsetName;
+            this.baseUri = baseUri;
+        }
+
+        /**
+         * Create an input from a byte array.
+         * @param data the input bytes
+         * @param charsetName (optional) character set of input; if null, it is detected from a BOM or meta charset,
+         * else defaults to UTF-8
+         * @param baseUri base URI of document, to resolve relative links against
+         * @return an input
+         */
+        public static Input bytes(final byte[] data, String charsetName, String baseUri) {
+            Validate.notNull(data);
+            return new Input(charsetName, baseUri) {
+                @Override
+                InputStream open() {
+                    return new ByteArrayInputStream(data);
+                }
+            };
+        }
+
+        /**
+         * Create an input from a file. The file is opened when it is parsed.
+         * @param file the file
+         * @param charsetName (optional) character set of input; if null, it is detected from a BOM or meta charset,
+         * else defaults to UTF-8
+         * @param baseUri base URI of document, to resolve relative links against
+         * @return an input
+         */
+        public static Input file(final File file, String charsetName, String baseUri) {
+            Validate.notNull(file);
+            return new Input(charsetName, baseUri) {
+                @Override
+                InputStream open() throws IOException {
+                    return new FileInputStream(file);
+                }
+            };
+        }
+
+        /**
+         * Create an input from an input stream. The stream is read on an executor thread, and closed once parsed.
+         * @param in the input stream
+         * @param charsetName (optional) character set of input; if null, it is detected from a BOM or meta charset,
+         * else defaults to UTF-8
+         * @param baseUri base URI of document, to resolve relative links against
+         * @return an input
+         */
+        public static Input stream(final InputStream in, String charsetName, String baseUri) {
+            Validate.notNull(in);
+            return new Input(charsetName, baseUri) {
+                @Override
+                InputStream open() {
+                    return in;
+                }
+            };
+        }
+
+        /**
+         * Get the base URI of this input.
+         * @return base URI
+         */
+        public String baseUri() {
+            return baseUri;
+        }
+
+        /**
+         * Get the charset of this input.
+         * @return charset name, or null if to be detected
+         */
+        public String charsetName() {
+            return charsetName;
+        }
+
+        abstract InputStream open() throws IOException;
+
+        Document parse(Parser parser) throws IOException {
+            InputStream in = open();
+            try {
+                return DataUtil.load(in, charsetName, baseUri, parser);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * The result of parsing one input of a batch: either its document, or the error that stopped it being parsed.
+     */
+    public static final class Result {
+        private final Input input;
+        private final int index;
+        private final Document document;
+        private final Exception error;
+
+        private Result(Input input, int index, Document document, Exception error) {
+            this.input = input;
+            this.index = index;
+            this.document = document;
+            this.error = error;
+        }
+
+        /**
+         * Get the input this is the result of.
+         * @return input
+         */
+        public Input input() {
+            return input;
+        }
+
+        /**
+         * Get the position of the input in the batch, counting from 0.
+         * @return input index
+         */
+        public int index() {
+            return index;
+        }
+
+        /**
+         * Check if the input was parsed.
+         * @return true if the document was parsed, false if parsing failed
+         */
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Get the parsed document.
+         * @return document, or null if parsing failed
+         */
+        public Document document() {
+            return document;
+        }
+
+        /**
+         * Get the error that stopped the input being parsed.
+         * @return an {@link IOException} if the input could not be read, or a runtime exception; null if parsed
+         */
+        public Exception error() {
+            return error;
+        }
+    }
+}
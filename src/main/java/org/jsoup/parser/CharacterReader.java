@@ -1,42 +1,196 @@
 package org.jsoup.parser;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.Validate;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.Locale;
 
 /**
  CharacterReader consumes tokens off a string. To replace the old TokenQueue.
+ <p>
+ When created from a {@link Reader}, the input is pulled through a fixed size buffer that is refilled as the reader
+ progresses, so memory use is bounded by the buffer size rather than the input size. The buffer is refilled when fewer
+ than half of its characters remain to be read. Scans that must see a whole run of input (a held {@link #mark()}, and
+ the sequences consumed under it) read on past the buffer, growing it if needed; the buffer returns to its window size
+ once the position has passed the held input. {@link #containsIgnoreCase(String)} reads on at most
+ {@link #maxScanAhead} chars, so a sequence further ahead than that is not found when streaming.
+ </p>
  */
 final class CharacterReader {
     static final char EOF = (char) -1;
     private static final int maxCacheLen = 12;
-
-    private final char[] input;
-    private final int length;
-    private int pos = 0;
-    private int mark = 0;
-    private final String[] stringCache = new String[512]; // holds reused strings in this doc, to lessen garbage
+    static final int defaultBufferSize = 1024 * 32; // chars buffered when streaming from a reader
+    static final int minBufferSize = 64; // enough to hold the longest sequence the tokeniser looks ahead for
+    static final int maxScanAhead = 1024 * 256; // chars containsIgnoreCase reads ahead of the position when streaming
+
+    private static final char[] empty = new char[0];
+
+    private char[] input; // the full input, or the buffered window of the reader
+    private char[] buffer; // the window buffer when streaming, kept for reuse on reset; null until first streaming
+    private Reader reader; // source of input when streaming; null when reading from a string
+    private int readAhead; // buffer up when fewer than this many chars remain in the buffer
+    private int length; // number of valid chars in input
+    private int pos = 0; // position in input
+    private int mark = -1; // position in input, or -1 if not marked
+    private int bufferOffset = 0; // offset of input[0] from the start of the reader
+    private int splitPoint; // buffer up once pos reaches this point
+    private final String[] stringCache = new String[512]; // holds reused strings, kept across resets, to lessen garbage
+
+    private static final boolean[] dataStopChars = scanTable('&', '<', TokeniserState.nullChar);
+    private static final boolean[] tagNameStopChars =
+        scanTable('\t', '\n', '\r', '\f', ' ', '/', '>', TokeniserState.nullChar);
 
     CharacterReader(String input) {
+        reset(input);
+    }
+
+    CharacterReader(Reader input) {
+        this(input, defaultBufferSize);
+    }
+
+    CharacterReader(Reader input, int bufferSize) {
+        Validate.notNull(input);
+        Validate.isTrue(bufferSize >= minBufferSize, "Buffer size must be at least " + minBufferSize);
+        this.buffer = new char[bufferSize];
+        reset(input);
+    }
+
+    /**
+     * Reset this reader to read a new string input. The string cache is kept, so a reader can be reused across many
+     * (small) inputs without allocating a new one for each.
+     * @param input input to read
+     */
+    void reset(String input) {
         Validate.notNull(input);
         this.input = input.toCharArray();
         this.length = this.input.length;
+        this.reader = null;
+        this.readAhead = 0;
+        this.splitPoint = Integer.MAX_VALUE; // never buffers up
+        this.pos = 0;
+        this.mark = -1;
+        this.bufferOffset = 0;
+    }
+
+    /**
+     * Reset this reader to stream a new input from a Reader. The window buffer (if this reader has streamed before)
+     * and the string cache are kept.
+     * @param input Reader to read from
+     */
+    void reset(Reader input) {
+        Validate.notNull(input);
+        if (buffer == null)
+            buffer = new char[defaultBufferSize];
+        this.input = buffer;
+        this.length = 0;
+        this.reader = input;
+        this.readAhead = buffer.length / 2;
+        this.splitPoint = 0; // fill on first read
+        this.pos = 0;
+        this.mark = -1;
+        this.bufferOffset = 0;
+    }
+
+    /**
+     * Drop the current input (so that it can be garbage collected while this reader is kept for reuse), leaving the
+     * reader empty.
+     */
+    void release() {
+        this.input = empty;
+        this.length = 0;
+        this.reader = null;
+        this.splitPoint = Integer.MAX_VALUE;
+        this.pos = 0;
+        this.mark = -1;
+        this.bufferOffset = 0;
+    }
+
+    /**
+     * Slides the buffer window along the reader, once the position has passed the split point. Retains the previous
+     * char (for unconsume) and the marked position, and then fills the rest of the buffer.
+     */
+    private void bufferUp() {
+        if (pos < splitPoint)
+            return;
+        fillBuffer(pos > 0 ? pos - 1 : 0);
+    }
+
+    /**
+     * Reads more of the reader into the buffer, whether or not the position has reached the split point, so that a scan
+     * that has reached the end of the buffer can continue. The buffer may slide, so callers should track their scan
+     * start relative to {@code pos}.
+     * @param retain position in the buffer to retain input from
+     * @return true if more input was read; false if all of the input is already buffered
+     */
+    private boolean bufferMore(int retain) {
+        if (splitPoint == Integer.MAX_VALUE) // reading from a string, or the reader is done
+            return false;
+        int before = length - pos;
+        fillBuffer(Math.min(retain, pos > 0 ? pos - 1 : 0));
+        return length - pos > before;
+    }
+
+    private void fillBuffer(int retain) {
+        int keep = Math.min(retain, length);
+        if (mark >= 0)
+            keep = Math.min(keep, mark); // a held mark is never released, else it could not be rewound to
+
+        if (keep > 0) {
+            length -= keep;
+            System.arraycopy(input, keep, input, 0, length);
+            bufferOffset += keep;
+            pos -= keep;
+            if (mark >= 0)
+                mark -= keep;
+        }
+
+        // a slide normally leaves about readAhead chars free. grow if retaining held input leaves much less; and once
+        // past the held input, return to the window buffer
+        int minFree = readAhead / 2;
+        if (input != buffer && buffer.length - length >= minFree) {
+            System.arraycopy(input, 0, buffer, 0, length);
+            input = buffer;
+        } else if (input.length - length < minFree) {
+            char[] grown = new char[input.length * 2];
+            System.arraycopy(input, 0, grown, 0, length);
+            input = grown;
+        }
+
+        boolean readerDone = false;
+        try {
+            while (length < input.length) {
+                int read = reader.read(input, length, input.length - length);
+                if (read == -1) {
+                    readerDone = true;
+                    break;
+                }
+                length += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        splitPoint = readerDone ? Integer.MAX_VALUE : length - readAhead;
     }
 
     int pos() {
-        return pos;
+        return bufferOffset + pos;
     }
 
     boolean isEmpty() {
+        bufferUp();
         return pos >= length;
     }
 
     char current() {
+        bufferUp();
         return pos >= length ? EOF : input[pos];
     }
 
     char consume() {
+        bufferUp();
         char val = pos >= length ? EOF : input[pos];
         pos++;
         return val;
@@ -51,14 +205,25 @@ final class CharacterReader {
     }
 
     void mark() {
+        bufferUp();
         mark = pos;
     }
 
+    /**
+     * Release the mark, so that the input behind it need no longer be buffered.
+     */
+    void unmark() {
+        mark = -1;
+    }
+
     void rewindToMark() {
+        if (mark < 0)
+            throw new IllegalStateException("No mark to rewind to");
         pos = mark;
     }
 
     String consumeAsString() {
+        bufferUp();
         return new String(input, pos++, 1);
     }
 
@@ -68,6 +233,7 @@ final class CharacterReader {
      * @return offset between current position and next instance of target. -1 if not found.
      */
     int nextIndexOf(char c) {
+        bufferUp();
         // doesn't handle scanning for surrogates
         for (int i = pos; i < length; i++) {
             if (c == input[i])
@@ -83,9 +249,15 @@ final class CharacterReader {
      * @return offset between current position and next instance of target. -1 if not found.
      */
     int nextIndexOf(CharSequence seq) {
+        bufferUp();
+        return nextIndexOf(seq, 0);
+    }
+
+    // scans for seq from an offset ahead of the current position, within the buffer
+    private int nextIndexOf(CharSequence seq, int from) {
         // doesn't handle scanning for surrogates
         char startChar = seq.charAt(0);
-        for (int offset = pos; offset < length; offset++) {
+        for (int offset = pos + from; offset < length; offset++) {
             // scan to first instance of startchar:
             if (startChar != input[offset])
                 while(++offset < length && startChar != input[offset]) { /* empty */ }
@@ -117,12 +289,18 @@ final class CharacterReader {
             String consumed = cacheString(pos, offset);
             pos += offset;
             return consumed;
-        } else {
+        } else if (splitPoint == Integer.MAX_VALUE) { // all remaining input is buffered
             return consumeToEnd();
+        } else { // seq may straddle the end of the buffer, so leave its length minus one to be scanned after buffering up
+            int count = length - pos - seq.length() + 1;
+            String consumed = cacheString(pos, count);
+            pos += count;
+            return consumed;
         }
     }
 
     String consumeToAny(final char... chars) {
+        bufferUp();
         final int start = pos;
         final int remaining = length;
 
@@ -137,59 +315,62 @@ final class CharacterReader {
         return pos > start ? cacheString(start, pos-start) : "";
     }
 
-    String consumeToAnySorted(final char... chars) {
-        final int start = pos;
-        final int remaining = length;
-        final char[] val = input;
-
-        while (pos < remaining) {
-            if (Arrays.binarySearch(chars, val[pos]) >= 0)
-                break;
-            pos++;
+    /**
+     * Builds a scan table for {@link #consumeToAny(boolean[])}: a lookup, indexed by char, of the chars to stop at.
+     * @param chars the chars to stop at. Must be ASCII.
+     * @return scan table
+     */
+    static boolean[] scanTable(final char... chars) {
+        final boolean[] table = new boolean[128];
+        for (char c : chars) {
+            Validate.isTrue(c < table.length, "Scan chars must be ASCII");
+            table[c] = true;
         }
-
-        return pos > start ? cacheString(start, pos-start) : "";
+        return table;
     }
 
-    String consumeData() {
-        // &, <, null
+    /**
+     * Consumes up to the first of the chars in the scan table. Tests each char with a single table lookup, instead of
+     * a comparison per stop char; non-ASCII chars (which are never stop chars) skip the lookup.
+     * @param stopChars scan table, from {@link #scanTable(char...)}
+     * @return the consumed chars, or empty if at a stop char
+     */
+    String consumeToAny(final boolean[] stopChars) {
+        bufferUp();
         final int start = pos;
         final int remaining = length;
         final char[] val = input;
+        int i = pos;
 
-        while (pos < remaining) {
-            final char c = val[pos];
-            if (c == '&'|| c ==  '<' || c ==  TokeniserState.nullChar)
+        while (i < remaining) {
+            final char c = val[i];
+            if (c < 128 && stopChars[c])
                 break;
-            pos++;
+            i++;
         }
 
-        return pos > start ? cacheString(start, pos-start) : "";
+        pos = i;
+        return i > start ? cacheString(start, i-start) : "";
     }
 
-    String consumeTagName() {
-        // '\t', '\n', '\r', '\f', ' ', '/', '>', nullChar
-        final int start = pos;
-        final int remaining = length;
-        final char[] val = input;
-
-        while (pos < remaining) {
-            final char c = val[pos];
-            if (c == '\t'|| c ==  '\n'|| c ==  '\r'|| c ==  '\f'|| c ==  ' '|| c ==  '/'|| c ==  '>'|| c ==  TokeniserState.nullChar)
-                break;
-            pos++;
-        }
+    String consumeData() {
+        return consumeToAny(dataStopChars);
+    }
 
-        return pos > start ? cacheString(start, pos-start) : "";
+    String consumeTagName() {
+        return consumeToAny(tagNameStopChars);
     }
 
+    // when streaming, consumes to the end of the buffer; callers should loop until isEmpty
     String consumeToEnd() {
+        bufferUp();
         String data = cacheString(pos, length-pos);
         pos = length;
         return data;
     }
 
     String consumeLetterSequence() {
+        bufferUp();
         int start = pos;
         while (pos < length) {
             char c = input[pos];
@@ -203,47 +384,84 @@ final class CharacterReader {
     }
 
     String consumeLetterThenDigitSequence() {
-        int start = pos;
-        while (pos < length) {
+        bufferUp();
+        int count = 0; // relative to pos, as the buffer may slide when reading on
+        while (pos < length || bufferMore(pos - count)) {
             char c = input[pos];
-            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'))
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
                 pos++;
-            else
+                count++;
+            } else
                 break;
         }
-        while (!isEmpty()) {
+        while (pos < length || bufferMore(pos - count)) {
             char c = input[pos];
-            if (c >= '0' && c <= '9')
+            if (c >= '0' && c <= '9') {
                 pos++;
-            else
+                count++;
+            } else
                 break;
         }
 
-        return cacheString(start, pos - start);
+        return cacheString(pos - count, count);
+    }
+
+    /**
+     * Consumes a letters then digits sequence (as {@link #consumeLetterThenDigitSequence()}), looking it up in the
+     * entity trie as it goes, without creating a String.
+     * @param trie entity trie to look the sequence up in
+     * @return the trie value of the whole sequence, or {@link EntityTrie#noEntity} if it is not an entity name
+     */
+    int consumeEntityName(EntityTrie trie) {
+        bufferUp();
+        int node = EntityTrie.root;
+        while (pos < length || bufferMore(pos)) {
+            char c = input[pos];
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                if (node != EntityTrie.noNode)
+                    node = trie.child(node, c);
+                pos++;
+            } else
+                break;
+        }
+        while (pos < length || bufferMore(pos)) {
+            char c = input[pos];
+            if (c >= '0' && c <= '9') {
+                if (node != EntityTrie.noNode)
+                    node = trie.child(node, c);
+                pos++;
+            } else
+                break;
+        }
+        return trie.value(node);
     }
 
     String consumeHexSequence() {
-        int start = pos;
-        while (pos < length) {
+        bufferUp();
+        int count = 0;
+        while (pos < length || bufferMore(pos - count)) {
             char c = input[pos];
-            if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f'))
+            if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f')) {
                 pos++;
-            else
+                count++;
+            } else
                 break;
         }
-        return cacheString(start, pos - start);
+        return cacheString(pos - count, count);
     }
 
     String consumeDigitSequence() {
-        int start = pos;
-        while (pos < length) {
+        bufferUp();
+        int count = 0;
+        while (pos < length || bufferMore(pos - count)) {
             char c = input[pos];
-            if (c >= '0' && c <= '9')
+            if (c >= '0' && c <= '9') {
                 pos++;
-            else
+                count++;
+            } else
                 break;
         }
-        return cacheString(start, pos - start);
+        return cacheString(pos - count, count);
     }
 
     boolean matches(char c) {
@@ -252,6 +470,7 @@ final class CharacterReader {
     }
 
     boolean matches(String seq) {
+        bufferUp();
         int scanLength = seq.length();
         if (scanLength > length - pos)
             return false;
@@ -263,6 +482,7 @@ final class CharacterReader {
     }
 
     boolean matchesIgnoreCase(String seq) {
+        bufferUp();
         int scanLength = seq.length();
         if (scanLength > length - pos)
             return false;
@@ -325,10 +545,19 @@ final class CharacterReader {
     }
 
     boolean containsIgnoreCase(String seq) {
-        // used to check presence of </title>, </style>. only finds consistent case.
+        // used to check presence of </title>, </style>. only finds consistent case. when streaming, reads on up to
+        // maxScanAhead chars, scanning only the newly read input (and the tail that seq could straddle) each time
+        bufferUp();
         String loScan = seq.toLowerCase(Locale.ENGLISH);
         String hiScan = seq.toUpperCase(Locale.ENGLISH);
-        return (nextIndexOf(loScan) > -1) || (nextIndexOf(hiScan) > -1);
+        int from = 0; // offset from pos that both scans have searched up to
+        while (true) {
+            if ((nextIndexOf(loScan, from) > -1) || (nextIndexOf(hiScan, from) > -1))
+                return true;
+            from = Math.max(0, length - pos - seq.length() + 1);
+            if (length - pos >= maxScanAhead || !bufferMore(pos))
+                return false;
+        }
     }
 
     @Override
@@ -337,7 +566,8 @@ final class CharacterReader {
     }
 
     /**
-     * Caches short strings, as a flywheel pattern, to reduce GC load. Just for this doc, to prevent leaks.
+     * Caches short strings, as a flywheel pattern, to reduce GC load. The cache is bounded (in its slots, and in the
+     * length of the strings held), so it is kept when the reader is reset for another input.
      * <p />
      * Simplistic, and on hash collisions just falls back to creating a new string, vs a full HashMap with Entry list.
      * That saves both having to create objects as hash keys, and running through the entry list, at the expense of
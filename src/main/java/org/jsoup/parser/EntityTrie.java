@@ -0,0 +1,127 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Entities;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compact, immutable trie of the named entities, so the tokeniser can match an entity name directly from the
+ * character buffer, without creating a String for it, or boxing its value.
+ * <p>
+ * Nodes are numbered from the root (0). The children of a node are held in a sorted run of the {@code childChars} and
+ * {@code childNodes} arrays, and found by binary search. Each node's value is the entity's character, flagged if it is
+ * in the base set; or {@link #noEntity} if the path to the node is only a prefix of entity names.
+ * </p>
+ */
+final class EntityTrie {
+    static final int noEntity = -1;
+    static final int noNode = -1;
+    static final int root = 0;
+    private static final int baseFlag = 1 << 16;
+
+    static final EntityTrie named = new EntityTrie();
+
+    private final int[] childStart; // by node: offset of its first child in childChars and childNodes
+    private final int[] childCount; // by node: number of children
+    private final char[] childChars; // child edge chars, sorted within each node's run
+    private final int[] childNodes; // child node numbers, parallel to childChars
+    private final int[] values; // by node: the entity char (with the base flag), or noEntity
+
+    private EntityTrie() {
+        // build a linked trie of the entities already loaded by Entities, then number its nodes breadth first into
+        // the flat arrays
+        BuildNode top = new BuildNode();
+        for (String name : Entities.entityNames()) {
+            BuildNode node = top;
+            for (int i = 0; i < name.length(); i++)
+                node = node.child(name.charAt(i));
+            node.value = Entities.getCharacterByName(name) | (Entities.isBaseNamedEntity(name) ? baseFlag : 0);
+        }
+
+        ArrayList<BuildNode> nodes = new ArrayList<BuildNode>();
+        nodes.add(top);
+        int edges = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            BuildNode node = nodes.get(i);
+            for (BuildNode child : node.children.values()) {
+                child.index = nodes.size();
+                nodes.add(child);
+                edges++;
+            }
+        }
+
+        childStart = new int[nodes.size()];
+        childCount = new int[nodes.size()];
+        values = new int[nodes.size()];
+        childChars = new char[edges];
+        childNodes = new int[edges];
+        int edge = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            BuildNode node = nodes.get(i);
+            childStart[i] = edge;
+            childCount[i] = node.children.size();
+            values[i] = node.value;
+            for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) { // sorted by TreeMap
+                childChars[edge] = child.getKey();
+                childNodes[edge] = child.getValue().index;
+                edge++;
+            }
+        }
+    }
+
+    /**
+     * Get the child of a node along an edge.
+     * @param node the parent node
+     * @param c the edge char
+     * @return the child node, or {@link #noNode} if no entity name continues with this char
+     */
+    int child(int node, char c) {
+        int low = childStart[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = childChars[mid];
+            if (midChar < c)
+                low = mid + 1;
+            else if (midChar > c)
+                high = mid - 1;
+            else
+                return childNodes[mid];
+        }
+        return noNode;
+    }
+
+    /**
+     * Get the entity value at a node.
+     * @param node node, or {@link #noNode}
+     * @return the entity value (use {@link #character(int)} and {@link #isBase(int)}), or {@link #noEntity}
+     */
+    int value(int node) {
+        return node == noNode ? noEntity : values[node];
+    }
+
+    static char character(int value) {
+        return (char) value;
+    }
+
+    static boolean isBase(int value) {
+        return (value & baseFlag) != 0;
+    }
+
+    private static final class BuildNode {
+        final TreeMap<Character, BuildNode> children = new TreeMap<Character, BuildNode>();
+        int value = noEntity;
+        int index;
+
+        BuildNode child(char c) {
+            BuildNode child = children.get(c);
+            if (child == null) {
+                child = new BuildNode();
+                children.put(c, child);
+            }
+            return child;
+        }
+    }
+}
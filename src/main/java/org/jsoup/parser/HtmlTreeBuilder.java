@@ -47,16 +47,50 @@ public class HtmlTreeBuilder extends TreeBuilder {
     HtmlTreeBuilder() {}
 
     @Override
-    Document parse(String input, String baseUri, ParseErrorList errors) {
+    protected void initialiseParse(CharacterReader input, String baseUri, ParseErrorList errors) {
+        super.initialiseParse(input, baseUri, errors);
+        clearState();
         state = HtmlTreeBuilderState.Initial;
+    }
+
+    @Override
+    void release() {
+        super.release();
+        clearState();
+    }
+
+    // clears the state left by the last parse, so that this builder can be reused
+    private void clearState() {
+        state = null;
+        originalState = null;
         baseUriSetFromDoc = false;
-        return super.parse(input, baseUri, errors);
+        headElement = null;
+        formElement = null;
+        contextElement = null;
+        formattingElements.clear();
+        pendingTableCharacters.clear();
+        framesetOk = true;
+        fosterInserts = false;
+        fragmentParsing = false;
     }
 
     List<Node> parseFragment(String inputFragment, Element context, String baseUri, ParseErrorList errors) {
+        Element root = initialiseParseFragment(readerFor(inputFragment), context, baseUri, errors);
+        runParser();
+        if (context != null && root != null)
+            return root.childNodes();
+        else
+            return doc.childNodes();
+    }
+
+    /**
+     * Set up to parse a fragment, in the context of an element.
+     * @return the root element that the fragment's nodes will be inserted into; or null without a context, when they
+     * are inserted into the document
+     */
+    Element initialiseParseFragment(CharacterReader input, Element context, String baseUri, ParseErrorList errors) {
         // context may be null
-        state = HtmlTreeBuilderState.Initial;
-        initialiseParse(inputFragment, baseUri, errors);
+        initialiseParse(input, baseUri, errors);
         contextElement = context;
         fragmentParsing = true;
         Element root = null;
@@ -96,12 +130,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
                 }
             }
         }
-
-        runParser();
-        if (context != null && root != null)
-            return root.childNodes();
-        else
-            return doc.childNodes();
+        return root;
     }
 
     @Override
@@ -179,13 +208,13 @@ public class HtmlTreeBuilder extends TreeBuilder {
             return el;
         }
         
-        Element el = new Element(Tag.valueOf(startTag.name()), baseUri, startTag.attributes);
+        Element el = new Element(tagFor(startTag.name()), baseUri, startTag.attributes);
         insert(el);
         return el;
     }
 
     Element insertStartTag(String startTagName) {
-        Element el = new Element(Tag.valueOf(startTagName), baseUri);
+        Element el = new Element(tagFor(startTagName), baseUri);
         insert(el);
         return el;
     }
@@ -196,23 +225,23 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     Element insertEmpty(Token.StartTag startTag) {
-        Tag tag = Tag.valueOf(startTag.name());
-        Element el = new Element(tag, baseUri, startTag.attributes);
-        insertNode(el);
+        Tag tag = tagFor(startTag.name());
         if (startTag.isSelfClosing()) {
             if (tag.isKnownTag()) {
                 if (tag.isSelfClosing()) tokeniser.acknowledgeSelfClosingFlag(); // if not acked, promulagates error
             } else {
                 // unknown tag, remember this is self closing for output
-                tag.setSelfClosing();
+                tag = tag.selfClosingCopy();
                 tokeniser.acknowledgeSelfClosingFlag(); // not an distinct error
             }
         }
+        Element el = new Element(tag, baseUri, startTag.attributes);
+        insertNode(el);
         return el;
     }
 
     FormElement insertForm(Token.StartTag startTag, boolean onStack) {
-        Tag tag = Tag.valueOf(startTag.name());
+        Tag tag = tagFor(startTag.name());
         FormElement el = new FormElement(tag, baseUri, startTag.attributes);
         setFormElement(el);
         insertNode(el);
@@ -0,0 +1,54 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.DocumentType;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * Parse event handler interface. Provide an implementing class to {@link StreamParser#parse(ParseEventHandler)} to
+ * receive the nodes of a document as they are parsed, in document order.
+ * <p>
+ * Nodes are reported once the tree builder has finished with them, so they are in their final position in the
+ * document, and are then detached from the document. A handler should read what it needs in the callback (or keep the
+ * node); the node's children and siblings are reported by subsequent callbacks, and should not be relied upon.
+ * </p>
+ */
+public interface ParseEventHandler {
+    /**
+     * Callback for the start of an element. The element's attributes are set.
+     * @param element the element being started
+     */
+    void startElement(Element element);
+
+    /**
+     * Callback for the end of an element, after all of its descendants have been reported.
+     * @param element the element being ended
+     */
+    void endElement(Element element);
+
+    /**
+     * Callback for a text node.
+     * @param text the text node
+     */
+    void text(TextNode text);
+
+    /**
+     * Callback for a data node, which holds the content of {@code script} and {@code style} elements.
+     * @param data the data node
+     */
+    void data(DataNode data);
+
+    /**
+     * Callback for a comment.
+     * @param comment the comment
+     */
+    void comment(Comment comment);
+
+    /**
+     * Callback for a doctype.
+     * @param doctype the doctype
+     */
+    void doctype(DocumentType doctype);
+}
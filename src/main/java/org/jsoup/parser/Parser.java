@@ -4,18 +4,26 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 
+import java.io.Reader;
 import java.util.List;
 
 /**
  * Parses HTML into a {@link org.jsoup.nodes.Document}. Generally best to use one of the  more convenient parse methods
  * in {@link org.jsoup.Jsoup}.
+ * <p>
+ * A Parser instance can be reused for any number of parses. Its tree builder, tokeniser and their buffers are reset
+ * and kept between parses, rather than allocated again for each input. A Parser is not thread-safe: use one per thread
+ * (or see {@link BatchParser}). The static parse methods use a parser kept for each thread.
+ * </p>
  */
 public class Parser {
     private static final int DEFAULT_MAX_ERRORS = 0; // by default, error tracking is disabled.
+    private static final ThreadLocal<HtmlTreeBuilder> pooledBuilders = new ThreadLocal<HtmlTreeBuilder>();
     
     private TreeBuilder treeBuilder;
     private int maxErrors = DEFAULT_MAX_ERRORS;
     private ParseErrorList errors;
+    private boolean localTags = false;
 
     /**
      * Create a new Parser, using the specified TreeBuilder
@@ -27,7 +35,50 @@ public class Parser {
     
     public Document parseInput(String html, String baseUri) {
         errors = isTrackErrors() ? ParseErrorList.tracking(maxErrors) : ParseErrorList.noTracking();
-        return treeBuilder.parse(html, baseUri, errors);
+        treeBuilder.keepTagSet(localTags);
+        try {
+            return treeBuilder.parse(html, baseUri, errors);
+        } finally {
+            treeBuilder.release();
+        }
+    }
+
+    /**
+     * Parse the input read from a Reader into a Document. The input is pulled through a fixed size buffer as it is
+     * parsed, so the whole input does not need to be held in memory (as a String) first.
+     * @param inputHtml Reader to read HTML from. Will not be closed.
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @return parsed Document
+     * @throws org.jsoup.UncheckedIOException if the reader throws an IOException
+     */
+    public Document parseInput(Reader inputHtml, String baseUri) {
+        errors = isTrackErrors() ? ParseErrorList.tracking(maxErrors) : ParseErrorList.noTracking();
+        treeBuilder.keepTagSet(localTags);
+        try {
+            return treeBuilder.parse(inputHtml, baseUri, errors);
+        } finally {
+            treeBuilder.release();
+        }
+    }
+
+    /**
+     * Parse a fragment of HTML (or XML, with an XML parser) into a list of nodes.
+     * @param fragment the fragment to parse
+     * @param context (optional) the element that this HTML fragment is being parsed for (i.e. for inner HTML). Not
+     * used by the XML parser.
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @return list of nodes parsed from the input. Note that the context element, if supplied, is not modified.
+     */
+    public List<Node> parseFragmentInput(String fragment, Element context, String baseUri) {
+        errors = isTrackErrors() ? ParseErrorList.tracking(maxErrors) : ParseErrorList.noTracking();
+        treeBuilder.keepTagSet(localTags);
+        try {
+            if (treeBuilder instanceof XmlTreeBuilder)
+                return ((XmlTreeBuilder) treeBuilder).parseFragment(fragment, baseUri, errors);
+            return ((HtmlTreeBuilder) treeBuilder).parseFragment(fragment, context, baseUri, errors);
+        } finally {
+            treeBuilder.release();
+        }
     }
 
     // gets & sets
@@ -67,6 +118,27 @@ public class Parser {
         return this;
     }
 
+    /**
+     * Check if this parser keeps its own set of unknown tags.
+     * @return current local tag set state.
+     */
+    public boolean isLocalTags() {
+        return localTags;
+    }
+
+    /**
+     * Enable or disable a tag set local to this parser. By default, unknown (e.g. custom element) tags are interned
+     * in a bounded set shared by all parsers. With a local tag set, they are interned in this parser's own set
+     * instead, which is not bounded, and is kept across parses until disabled: useful when one parser sees many
+     * distinct custom tags, that would otherwise fill the shared set.
+     * @param localTags true to intern unknown tags in this parser's own set
+     * @return this, for chaining
+     */
+    public Parser setLocalTags(boolean localTags) {
+        this.localTags = localTags;
+        return this;
+    }
+
     /**
      * Retrieve the parse errors, if any, from the last parse.
      * @return list of parse errors, up to the size of the maximum errors tracked.
@@ -75,6 +147,28 @@ public class Parser {
         return errors;
     }
 
+    /**
+     * Create a new parser of the same kind (HTML or XML) and with the same settings as this one, but with its own
+     * tree builder, so that it can be used on another thread. Only parsers with the stock {@link HtmlTreeBuilder} or
+     * {@link XmlTreeBuilder} can be copied: a subclass of either may hold state that a new instance would not have.
+     * @return a new parser
+     * @throws IllegalArgumentException if this parser's tree builder is not a stock one
+     */
+    Parser copy() {
+        TreeBuilder builder;
+        if (treeBuilder.getClass() == HtmlTreeBuilder.class)
+            builder = new HtmlTreeBuilder();
+        else if (treeBuilder.getClass() == XmlTreeBuilder.class)
+            builder = new XmlTreeBuilder();
+        else
+            throw new IllegalArgumentException("Can only copy a parser with a stock HTML or XML tree builder, not a "
+                + treeBuilder.getClass().getName());
+        Parser copy = new Parser(builder);
+        copy.maxErrors = maxErrors;
+        copy.localTags = localTags;
+        return copy;
+    }
+
     // static parse functions below
     /**
      * Parse HTML into a Document.
@@ -85,8 +179,12 @@ public class Parser {
      * @return parsed Document
      */
     public static Document parse(String html, String baseUri) {
-        TreeBuilder treeBuilder = new HtmlTreeBuilder();
-        return treeBuilder.parse(html, baseUri, ParseErrorList.noTracking());
+        HtmlTreeBuilder treeBuilder = acquireBuilder();
+        try {
+            return treeBuilder.parse(html, baseUri, ParseErrorList.noTracking());
+        } finally {
+            releaseBuilder(treeBuilder);
+        }
     }
 
     /**
@@ -100,8 +198,12 @@ public class Parser {
      * @return list of nodes parsed from the input HTML. Note that the context element, if supplied, is not modified.
      */
     public static List<Node> parseFragment(String fragmentHtml, Element context, String baseUri) {
-        HtmlTreeBuilder treeBuilder = new HtmlTreeBuilder();
-        return treeBuilder.parseFragment(fragmentHtml, context, baseUri, ParseErrorList.noTracking());
+        HtmlTreeBuilder treeBuilder = acquireBuilder();
+        try {
+            return treeBuilder.parseFragment(fragmentHtml, context, baseUri, ParseErrorList.noTracking());
+        } finally {
+            releaseBuilder(treeBuilder);
+        }
     }
 
     /**
@@ -160,6 +262,21 @@ public class Parser {
         return parse(bodyHtml, baseUri);
     }
     
+    // takes this thread's pooled builder; or a new one, if the pooled one is already taken by a parse further up the
+    // stack, or by a StreamParser. Pooled builders keep the shared tag set and no error tracking, as the static methods use.
+    static HtmlTreeBuilder acquireBuilder() {
+        HtmlTreeBuilder treeBuilder = pooledBuilders.get();
+        if (treeBuilder == null)
+            return new HtmlTreeBuilder();
+        pooledBuilders.set(null);
+        return treeBuilder;
+    }
+
+    static void releaseBuilder(HtmlTreeBuilder treeBuilder) {
+        treeBuilder.release();
+        pooledBuilders.set(treeBuilder);
+    }
+
     // builders
 
     /**
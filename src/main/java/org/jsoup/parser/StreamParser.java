@@ -0,0 +1,545 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.DocumentType;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.jsoup.select.Selector;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * Parses HTML into a stream of events (start element, end element, text, data, comment and doctype), rather than into
+ * a full {@link org.jsoup.nodes.Document}. The HTML tree construction rules are applied as in a normal parse, so the
+ * events describe the same tree that {@link Parser#parse(String, String)} would build.
+ * <p>
+ * Nodes are reported once no later tree construction step can modify them, and are then detached from the document.
+ * So only the open elements, and nodes that may still be moved (e.g. the contents of misnested formatting elements, or
+ * of an open table), are held in memory.
+ * </p>
+ * <p>
+ * Events can be pushed to a {@link ParseEventHandler} with {@link #parse(ParseEventHandler)}, or pulled by using the
+ * stream parser as an {@link Iterator} of {@link Event}s. A StreamParser parses a single input, and is not thread-safe.
+ * </p>
+ * <p>
+ * Note that attributes merged onto the {@code html} or {@code body} elements by later duplicate tags are not
+ * reported, if the element has already been started. The body (or a fragment's first element) and its content are
+ * held back while a {@code <frameset>} could still replace it, i.e. until the first content that rules a frameset
+ * out, such as non-whitespace text.
+ * </p>
+ */
+public class StreamParser implements Iterator<StreamParser.Event> {
+    private final HtmlTreeBuilder treeBuilder = Parser.acquireBuilder(); // returned to the pool once parsed
+    private final ArrayList<Element> started = new ArrayList<Element>(); // elements started but not ended, from the root
+    private final ArrayList<Integer> startedPositions = new ArrayList<Integer>(); // stack position of each, when started
+    private final LinkedList<Event> queue = new LinkedList<Event>(); // events pending a pull
+    private final ParseEventHandler queueHandler = new QueueHandler();
+    private final Node root; // the node whose descendants are reported: the document, or the root of a fragment
+    private final String baseUri;
+    private final EventVisitor eventVisitor = new EventVisitor();
+    private boolean eof = false;
+
+    /**
+     * Create a new StreamParser over the input HTML.
+     * @param html HTML to parse
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     */
+    public StreamParser(String html, String baseUri) {
+        this(html, null, baseUri);
+    }
+
+    /**
+     * Create a new StreamParser over input read from a Reader. The input is read as it is parsed.
+     * @param html Reader to read HTML from. Will not be closed.
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     */
+    public StreamParser(Reader html, String baseUri) {
+        this(html, null, baseUri);
+    }
+
+    private StreamParser(String html, Element context, String baseUri) {
+        this.baseUri = baseUri;
+        root = initialise(treeBuilder.readerFor(html), context);
+    }
+
+    private StreamParser(Reader html, Element context, String baseUri) {
+        this.baseUri = baseUri;
+        root = initialise(treeBuilder.readerFor(html), context);
+    }
+
+    // starts the parse of a document, or of a fragment if there is a context element. returns the root
+    private Node initialise(CharacterReader input, Element context) {
+        if (context == null) {
+            treeBuilder.initialiseParse(input, baseUri, ParseErrorList.noTracking());
+            return treeBuilder.getDocument();
+        }
+        return treeBuilder.initialiseParseFragment(input, context, baseUri, ParseErrorList.noTracking());
+    }
+
+    /**
+     * Create a new StreamParser over a fragment of HTML, parsed as the content of a {@code body} element (as in
+     * {@link Parser#parseBodyFragment(String, String)}). Events are reported for the fragment's nodes only.
+     * @param bodyHtml fragment of HTML to parse
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @return a new StreamParser
+     */
+    public static StreamParser bodyFragment(String bodyHtml, String baseUri) {
+        Validate.notNull(bodyHtml);
+        return new StreamParser(bodyHtml, bodyContext(baseUri), baseUri);
+    }
+
+    /**
+     * Create a new StreamParser over a fragment of HTML read from a Reader, parsed as the content of a {@code body}
+     * element. The input is read as it is parsed.
+     * @param bodyHtml Reader to read the HTML fragment from. Will not be closed.
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @return a new StreamParser
+     */
+    public static StreamParser bodyFragment(Reader bodyHtml, String baseUri) {
+        Validate.notNull(bodyHtml);
+        return new StreamParser(bodyHtml, bodyContext(baseUri), baseUri);
+    }
+
+    // as the body of a shell document, for a body fragment's context; without the document, as nothing of it is used
+    private static Element bodyContext(String baseUri) {
+        return new Element(Tag.valueOf("body"), baseUri);
+    }
+
+    /**
+     * Parse the (remaining) input, pushing each event to the handler.
+     * @param handler handler to call for each event
+     * @throws org.jsoup.UncheckedIOException if reading from the Reader throws an IOException
+     */
+    public void parse(ParseEventHandler handler) {
+        Validate.notNull(handler);
+        while (!queue.isEmpty()) // any events already read for a pull
+            queue.removeFirst().send(handler);
+        while (!eof)
+            step(handler);
+    }
+
+    /**
+     * Parse the (remaining) input, and return only the elements that match the query. Other content is dropped as soon
+     * as it ends, keeping only an empty placeholder (tag and attributes) for each ended sibling of the open elements, so
+     * memory use is proportional to the matches and the width of the open elements, rather than to the document.
+     * <p>
+     * Each element is tested when it starts, against its tag, attributes, ancestors and preceding siblings; so
+     * structural selectors such as {@code li:nth-child(2)} and {@code h2 + p} match as in a full parse. A matched
+     * element is kept with its full content, and once it ends, it and its content are tested again. Each match is
+     * also tested again as its ancestors end, so selectors on following siblings (such as {@code :last-child} or
+     * {@code :only-of-type}) drop an element that has later siblings.
+     * </p>
+     * <p>
+     * Selectors that only match once an element has content or later siblings (such as {@code :has},
+     * {@code :contains} or {@code :nth-last-child(2)}) will only find elements that are within an element matched
+     * when it started, as other elements are not kept; e.g. {@code div.article, div.article p:has(a)}.
+     * </p>
+     * <p>
+     * The returned elements are in document order, and keep their ancestors, but not their ancestors' other content.
+     * </p>
+     * @param query CSS query, e.g. {@code meta[property], a[href]}. See {@link org.jsoup.select.Selector}.
+     * @return matching elements, empty if none
+     * @throws org.jsoup.select.Selector.SelectorParseException (unchecked) on an invalid query.
+     */
+    public Elements select(String query) {
+        Validate.notEmpty(query);
+        return select(Selector.compile(query).evaluator());
+    }
+
+    /**
+     * Parse the (remaining) input, and return only the elements that match the evaluator.
+     * @param evaluator element evaluator
+     * @return matching elements, empty if none
+     * @see #select(String)
+     */
+    public Elements select(Evaluator evaluator) {
+        Validate.notNull(evaluator);
+        SelectingHandler handler = new SelectingHandler(evaluator, baseUri);
+        parse(handler);
+        handler.dropPlaceholders();
+        return handler.results;
+    }
+
+    /**
+     * Check if there are more events to pull. Parses input until the next event is available.
+     * @return true if there is a next event.
+     * @throws org.jsoup.UncheckedIOException if reading from the Reader throws an IOException
+     */
+    public boolean hasNext() {
+        while (queue.isEmpty() && !eof)
+            step(queueHandler);
+        return !queue.isEmpty();
+    }
+
+    /**
+     * Pull the next event.
+     * @return the next event
+     * @throws NoSuchElementException if there are no more events
+     */
+    public Event next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        return queue.removeFirst();
+    }
+
+    /**
+     * Unsupported.
+     * @throws UnsupportedOperationException always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void step(ParseEventHandler handler) {
+        eof = !treeBuilder.stepParser();
+        emitCompleted(handler);
+        if (eof)
+            Parser.releaseBuilder(treeBuilder); // so the next parse on this thread can reuse it
+    }
+
+    /**
+     * Walks down through the started elements, reporting and detaching the leading children that are complete, and
+     * starting open elements that are safe to start. Stops at the first node that may still change.
+     * <p>
+     * The walk resumes from the deepest started element still in place, rather than from the root: tree construction
+     * only inserts into or around open elements, so a started element with its started child still open in front of
+     * any other children has nothing new to report.
+     * </p>
+     */
+    private void emitCompleted(ParseEventHandler handler) {
+        int depth = resumeDepth();
+        Node parent = depth == 0 ? root : started.get(depth - 1);
+        int firstFormatting = -1; // found on first use
+
+        while (true) {
+            if (depth < started.size() && started.get(depth).parent() != parent)
+                endStarted(depth, handler); // moved out of place, e.g. a body replaced by a frameset
+
+            if (parent.childNodeSize() > 0) {
+                Node child = parent.childNode(0);
+                if (depth < started.size() && child == started.get(depth)) {
+                    parent = child;
+                    depth++;
+                } else if (eof || isComplete(child, parent)) {
+                    if (child instanceof TextNode) { // most common, so skips the traversal
+                        handler.text((TextNode) child);
+                    } else {
+                        eventVisitor.handler = handler;
+                        new NodeTraversor(eventVisitor).traverse(child);
+                    }
+                    child.remove();
+                } else {
+                    if (firstFormatting == -1)
+                        firstFormatting = firstFormattingElementOnStack();
+                    int pos = startPosition(child, firstFormatting);
+                    if (pos == -1)
+                        return;
+                    Element el = (Element) child;
+                    handler.startElement(el);
+                    started.add(el);
+                    startedPositions.add(pos);
+                    parent = el;
+                    depth++;
+                }
+            } else if (depth > 0 && (eof || isComplete(parent, parent.parent()))) {
+                Element el = started.remove(depth - 1);
+                startedPositions.remove(depth - 1);
+                handler.endElement(el);
+                parent = el.parent();
+                el.remove();
+                depth--;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // the depth below the deepest started element that is still in place (at its stack position, under its parent).
+    // the stack only changes below a started element if it is popped, so this is usually the deepest
+    private int resumeDepth() {
+        ArrayList<Element> stack = treeBuilder.getStack();
+        for (int depth = started.size() - 1; depth >= 0; depth--) {
+            Element el = started.get(depth);
+            int pos = startedPositions.get(depth);
+            Node parent = depth == 0 ? root : started.get(depth - 1);
+            if (pos < stack.size() && stack.get(pos) == el && el.parent() == parent)
+                return depth + 1;
+        }
+        return 0;
+    }
+
+    private void endStarted(int depth, ParseEventHandler handler) {
+        for (int i = started.size() - 1; i >= depth; i--) {
+            startedPositions.remove(i);
+            handler.endElement(started.remove(i));
+        }
+    }
+
+    // complete if no later tree construction step will add to, or move, the node or its descendants
+    private boolean isComplete(Node node, Node parent) {
+        if (!(node instanceof Element))
+            return true;
+        Element el = (Element) node;
+        if (treeBuilder.onStack(el))
+            return false;
+        if (el == treeBuilder.getHeadElement() && treeBuilder.state() == HtmlTreeBuilderState.AfterHead)
+            return false; // head may be reopened for late metadata elements
+        return !hasOpenDescendant(el, parent);
+    }
+
+    // an element can be removed from the stack with its descendants still open, e.g. a form end tag
+    private boolean hasOpenDescendant(Element el, Node parent) {
+        ArrayList<Element> stack = treeBuilder.getStack();
+        for (int pos = stack.size() - 1; pos >= 0; pos--) {
+            Node node = stack.get(pos);
+            if (node == parent)
+                break; // the rest are ancestors
+            while (node != null && node != parent) {
+                if (node == el)
+                    return true;
+                node = node.parent();
+            }
+        }
+        return false;
+    }
+
+    // an open element can be started if it has content, can't be moved by the adoption agency, nothing can be
+    // fostered in front of it, and it can't be replaced by a frameset. returns its stack position if so, else -1
+    private int startPosition(Node node, int firstFormatting) {
+        if (!(node instanceof Element) || node.childNodeSize() == 0)
+            return -1;
+        Element el = (Element) node;
+        if (el.tagName().equals("table"))
+            return -1;
+        ArrayList<Element> stack = treeBuilder.getStack();
+        for (int pos = Math.min(firstFormatting, stack.size()) - 1; pos >= 0; pos--) {
+            if (stack.get(pos) == el)
+                return pos == 1 && treeBuilder.framesetOk() && el != treeBuilder.getHeadElement() ? -1 : pos;
+        }
+        return -1;
+    }
+
+    private int firstFormattingElementOnStack() {
+        ArrayList<Element> stack = treeBuilder.getStack();
+        final int size = stack.size();
+        for (int pos = 0; pos < size; pos++) {
+            if (treeBuilder.isInActiveFormattingElements(stack.get(pos)))
+                return pos;
+        }
+        return size;
+    }
+
+    private static class EventVisitor implements NodeVisitor {
+        private ParseEventHandler handler; // set before each traversal
+
+        public void head(Node node, int depth) {
+            if (node instanceof Element)
+                handler.startElement((Element) node);
+            else if (node instanceof TextNode)
+                handler.text((TextNode) node);
+            else if (node instanceof DataNode)
+                handler.data((DataNode) node);
+            else if (node instanceof Comment)
+                handler.comment((Comment) node);
+            else if (node instanceof DocumentType)
+                handler.doctype((DocumentType) node);
+        }
+
+        public void tail(Node node, int depth) {
+            if (node instanceof Element)
+                handler.endElement((Element) node);
+        }
+    }
+
+    // rebuilds the tree of open elements and matched elements. an ended element without matches is emptied, leaving
+    // it as a placeholder so that its later siblings see the same preceding siblings as in the full document
+    private static class SelectingHandler implements ParseEventHandler {
+        private final Evaluator evaluator;
+        private final Document root;
+        private final Elements results = new Elements();
+        private Element current; // the open element in the rebuilt tree
+        private Element retained = null; // outermost open element matched at start, the content of which is kept
+        private final ArrayList<Integer> startIndexes = new ArrayList<Integer>(); // results size as each open element started
+
+        SelectingHandler(Evaluator evaluator, String baseUri) {
+            this.evaluator = evaluator;
+            root = new Document(baseUri);
+            current = root;
+        }
+
+        public void startElement(Element element) {
+            Element el = new Element(element.tag(), element.baseUri(), element.attributes().clone());
+            current.appendChild(el);
+            current = el;
+            startIndexes.add(results.size());
+            if (retained == null && evaluator.matches(root, el)) { // within retained, tested when retained ends
+                results.add(el);
+                retained = el;
+            }
+        }
+
+        public void endElement(Element element) {
+            Element el = current;
+            current = el.parent();
+
+            // results added since this element started are within it, and are the last results
+            int startIndex = startIndexes.remove(startIndexes.size() - 1);
+            if (el == retained) { // content complete: test it all again, in document order
+                retained = null;
+                results.subList(startIndex, results.size()).clear();
+                for (Element candidate : el.getAllElements()) {
+                    if (evaluator.matches(root, candidate))
+                        results.add(candidate);
+                }
+            } else if (retained == null) { // children complete: a match may now have later siblings
+                for (int i = results.size() - 1; i >= startIndex; i--) {
+                    if (!evaluator.matches(root, results.get(i)))
+                        results.remove(i);
+                }
+            }
+            if (retained == null && results.size() == startIndex)
+                el.empty(); // no match within, so only kept as a placeholder for its siblings
+        }
+
+        // removes the placeholders left around the matches once the parse is done
+        void dropPlaceholders() {
+            IdentityHashMap<Element, Boolean> ancestors = new IdentityHashMap<Element, Boolean>(); // matches and their ancestors
+            IdentityHashMap<Element, Boolean> within = new IdentityHashMap<Element, Boolean>(); // matches and their content
+            for (Element match : results) {
+                within.put(match, Boolean.TRUE);
+                for (Element el = match; el != null && !ancestors.containsKey(el); el = el.parent())
+                    ancestors.put(el, Boolean.TRUE);
+            }
+            for (Element el : root.getAllElements()) { // in document order, so parents are checked before children
+                Element parent = el.parent();
+                if (parent != null && within.containsKey(parent))
+                    within.put(el, Boolean.TRUE);
+                else if (parent != null && !ancestors.containsKey(el))
+                    el.remove();
+            }
+        }
+
+        public void text(TextNode text) {
+            if (retained != null)
+                current.appendChild(new TextNode(text.getWholeText(), text.baseUri()));
+        }
+
+        public void data(DataNode data) {
+            if (retained != null)
+                current.appendChild(new DataNode(data.getWholeData(), data.baseUri()));
+        }
+
+        public void comment(Comment comment) {
+            if (retained != null)
+                current.appendChild(new Comment(comment.getData(), comment.baseUri()));
+        }
+
+        public void doctype(DocumentType doctype) {
+            // not within an element, so never retained
+        }
+    }
+
+    private class QueueHandler implements ParseEventHandler {
+        public void startElement(Element element) {
+            queue.add(new Event(Event.Type.StartElement, element));
+        }
+
+        public void endElement(Element element) {
+            queue.add(new Event(Event.Type.EndElement, element));
+        }
+
+        public void text(TextNode text) {
+            queue.add(new Event(Event.Type.Text, text));
+        }
+
+        public void data(DataNode data) {
+            queue.add(new Event(Event.Type.Data, data));
+        }
+
+        public void comment(Comment comment) {
+            queue.add(new Event(Event.Type.Comment, comment));
+        }
+
+        public void doctype(DocumentType doctype) {
+            queue.add(new Event(Event.Type.Doctype, doctype));
+        }
+    }
+
+    /**
+     * A parse event, pulled from a StreamParser.
+     */
+    public static final class Event {
+        /**
+         * The type of event, which determines the type of node.
+         */
+        public enum Type {
+            StartElement, EndElement, Text, Data, Comment, Doctype
+        }
+
+        private final Type type;
+        private final Node node;
+
+        Event(Type type, Node node) {
+            this.type = type;
+            this.node = node;
+        }
+
+        /**
+         * Get the type of this event.
+         * @return event type
+         */
+        public Type type() {
+            return type;
+        }
+
+        /**
+         * Get the node this event is for: an {@link Element} for start and end events, else a {@link TextNode},
+         * {@link DataNode}, {@link Comment} or {@link DocumentType}.
+         * @return event node
+         */
+        public Node node() {
+            return node;
+        }
+
+        void send(ParseEventHandler handler) {
+            switch (type) {
+                case StartElement:
+                    handler.startElement((Element) node);
+                    break;
+                case EndElement:
+                    handler.endElement((Element) node);
+                    break;
+                case Text:
+                    handler.text((TextNode) node);
+                    break;
+                case Data:
+                    handler.data((DataNode) node);
+                    break;
+                case Comment:
+                    handler.comment((Comment) node);
+                    break;
+                case Doctype:
+                    handler.doctype((DocumentType) node);
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + node.nodeName();
+        }
+    }
+}
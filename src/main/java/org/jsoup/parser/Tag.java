@@ -4,6 +4,7 @@ import org.jsoup.helper.Validate;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * HTML Tag capabilities.
@@ -12,6 +13,8 @@ import java.util.Map;
  */
 public class Tag {
     private static final Map<String, Tag> tags = new HashMap<String, Tag>(); // map of known tags
+    private static final int maxUnknownTags = 1024; // past this, new unknown tags are not interned
+    private static final Map<String, Tag> unknownTags = new ConcurrentHashMap<String, Tag>(); // interned unknown tags, by normal name. never evicted
 
     private String tagName;
     private boolean isBlock = true; // block or inline
@@ -38,28 +41,49 @@ public class Tag {
     }
 
     /**
-     * Get a Tag by name. If not previously defined (unknown), returns a new generic tag, that can do anything.
+     * Get a Tag by name. If not previously defined (unknown), returns a generic tag, that can do anything.
      * <p>
-     * Pre-defined tags (P, DIV etc) will be ==, but unknown tags are not registered and will only .equals().
+     * Pre-defined tags (P, DIV etc) will be ==. Unknown tags are interned in a set shared across threads, which holds
+     * the first 1024 distinct unknown tag names seen, for the life of the class; it is not an LRU, and names are never
+     * evicted from it. Once it is full, tags for other unknown names are created per call, and will only .equals().
+     * Parsers that see many distinct custom tags can keep their own set with {@link Parser#setLocalTags(boolean)}.
      * </p>
      * 
      * @param tagName Name of tag, e.g. "p". Case insensitive.
      * @return The tag, either defined or new generic.
      */
     public static Tag valueOf(String tagName) {
+        return valueOf(tagName, unknownTags, maxUnknownTags);
+    }
+
+    /**
+     * Get a Tag by name, interning unknown tags in the supplied set.
+     * @param tagName Name of tag. Case insensitive.
+     * @param internSet set to find and save unknown tags in, keyed by the normalised name.
+     * @param maxSize the maximum size of the intern set; new unknown tags are not saved once it is full.
+     * @return The tag, either defined or new generic.
+     */
+    static Tag valueOf(String tagName, Map<String, Tag> internSet, int maxSize) {
         Validate.notNull(tagName);
         Tag tag = tags.get(tagName);
+        if (tag == null)
+            tag = internSet.get(tagName);
 
         if (tag == null) {
-            tagName = tagName.trim().toLowerCase();
-            Validate.notEmpty(tagName);
-            tag = tags.get(tagName);
+            String normalName = tagName.trim().toLowerCase();
+            Validate.notEmpty(normalName);
+            tag = tags.get(normalName);
 
             if (tag == null) {
-                // not defined: create default; go anywhere, do anything! (incl be inside a <p>)
-                tag = new Tag(tagName);
-                tag.isBlock = false;
-                tag.canContainBlock = true;
+                tag = internSet.get(normalName);
+                if (tag == null) {
+                    // not defined: create default; go anywhere, do anything! (incl be inside a <p>)
+                    tag = new Tag(normalName);
+                    tag.isBlock = false;
+                    tag.canContainBlock = true;
+                    if (internSet.size() < maxSize)
+                        internSet.put(normalName, tag);
+                }
             }
         }
         return tag;
@@ -172,9 +196,25 @@ public class Tag {
         return formSubmit;
     }
 
-    Tag setSelfClosing() {
-        selfClosing = true;
-        return this;
+    /**
+     * Get a copy of this tag that is self closing. Used for unknown tags that self close; the tag itself is not
+     * modified, as it may be shared.
+     * @return a self closing copy of this tag, or this tag if already self closing
+     */
+    Tag selfClosingCopy() {
+        if (isSelfClosing())
+            return this;
+        Tag tag = new Tag(tagName);
+        tag.isBlock = isBlock;
+        tag.formatAsBlock = formatAsBlock;
+        tag.canContainBlock = canContainBlock;
+        tag.canContainInline = canContainInline;
+        tag.empty = empty;
+        tag.selfClosing = true;
+        tag.preserveWhitespace = preserveWhitespace;
+        tag.formList = formList;
+        tag.formSubmit = formSubmit;
+        return tag;
     }
 
     @Override
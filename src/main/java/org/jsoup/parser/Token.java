@@ -1,9 +1,7 @@
 package org.jsoup.parser;
 
 import org.jsoup.helper.Validate;
-import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Attributes;
-import org.jsoup.nodes.BooleanAttribute;
 
 /**
  * Parse tokens for the Tokeniser.
@@ -92,14 +90,12 @@ abstract class Token {
                 attributes = new Attributes();
 
             if (pendingAttributeName != null) {
-                Attribute attribute;
                 if (hasPendingAttributeValue)
-                    attribute = new Attribute(pendingAttributeName, pendingAttributeValue.toString());
+                    attributes.put(pendingAttributeName, pendingAttributeValue.toString());
                 else if (hasEmptyAttributeValue)
-                    attribute = new Attribute(pendingAttributeName, "");
+                    attributes.put(pendingAttributeName, "");
                 else
-                    attribute = new BooleanAttribute(pendingAttributeName);
-                attributes.put(attribute);
+                    attributes.put(pendingAttributeName, true); // boolean attribute
             }
             pendingAttributeName = null;
             hasEmptyAttributeValue = false;
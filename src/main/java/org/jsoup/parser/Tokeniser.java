@@ -1,7 +1,6 @@
 package org.jsoup.parser;
 
 import org.jsoup.helper.Validate;
-import org.jsoup.nodes.Entities;
 
 import java.util.Arrays;
 
@@ -10,6 +9,7 @@ import java.util.Arrays;
  */
 final class Tokeniser {
     static final char replacementChar = '\uFFFD'; // replaces null character
+    private static final int maxRetainedBuffer = 1024 * 64; // larger buffers are not kept on reset
     private static final char[] notCharRefCharsSorted = new char[]{'\t', '\n', '\r', '\f', ' ', '<', '&'};
 
     static {
@@ -40,6 +40,38 @@ final class Tokeniser {
         this.errors = errors;
     }
 
+    /**
+     * Reset this tokeniser to tokenise a new input, keeping its buffers and pending token instances.
+     * @param reader html input
+     * @param errors errors list to add to
+     */
+    void reset(CharacterReader reader, ParseErrorList errors) {
+        this.reader = reader;
+        this.errors = errors;
+        state = TokeniserState.Data;
+        emitPending = null;
+        isEmitPending = false;
+        charsString = null;
+        charsBuilder = resetBuffer(charsBuilder);
+        dataBuffer = resetBuffer(dataBuffer);
+        tagPending = null;
+        startPending.reset();
+        endPending.reset();
+        charPending.reset();
+        doctypePending.reset();
+        commentPending.reset();
+        lastStartTag = null;
+        selfClosingFlagAcknowledged = true;
+    }
+
+    // empties a buffer for reuse; or replaces it if an earlier input grew it very large, so that isn't held on to
+    private static StringBuilder resetBuffer(StringBuilder buffer) {
+        if (buffer.capacity() > maxRetainedBuffer)
+            return new StringBuilder(1024);
+        buffer.setLength(0);
+        return buffer;
+    }
+
     Token read() {
         if (!selfClosingFlagAcknowledged) {
             error("Self closing flag not acknowledged");
@@ -133,57 +165,64 @@ final class Tokeniser {
 
         final char[] charRef = charRefHolder;
         reader.mark();
-        if (reader.matchConsume("#")) { // numbered
-            boolean isHexMode = reader.matchConsumeIgnoreCase("X");
-            String numRef = isHexMode ? reader.consumeHexSequence() : reader.consumeDigitSequence();
-            if (numRef.length() == 0) { // didn't match anything
-                characterReferenceError("numeric reference with no numerals");
-                reader.rewindToMark();
-                return null;
-            }
-            if (!reader.matchConsume(";"))
-                characterReferenceError("missing semicolon"); // missing semi
-            int charval = -1;
-            try {
-                int base = isHexMode ? 16 : 10;
-                charval = Integer.valueOf(numRef, base);
-            } catch (NumberFormatException e) {
-            } // skip
-            if (charval == -1 || (charval >= 0xD800 && charval <= 0xDFFF) || charval > 0x10FFFF) {
-                characterReferenceError("character outside of valid range");
-                charRef[0] = replacementChar;
-                return charRef;
-            } else {
-                // todo: implement number replacement table
-                // todo: check for extra illegal unicode points as parse errors
-                if (charval < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
-                    charRef[0] = (char) charval;
+        try {
+            if (reader.matchConsume("#")) { // numbered
+                boolean isHexMode = reader.matchConsumeIgnoreCase("X");
+                String numRef = isHexMode ? reader.consumeHexSequence() : reader.consumeDigitSequence();
+                if (numRef.length() == 0) { // didn't match anything
+                    characterReferenceError("numeric reference with no numerals");
+                    reader.rewindToMark();
+                    return null;
+                }
+                if (!reader.matchConsume(";"))
+                    characterReferenceError("missing semicolon"); // missing semi
+                int charval = -1;
+                try {
+                    int base = isHexMode ? 16 : 10;
+                    charval = Integer.valueOf(numRef, base);
+                } catch (NumberFormatException e) {
+                } // skip
+                if (charval == -1 || (charval >= 0xD800 && charval <= 0xDFFF) || charval > 0x10FFFF) {
+                    characterReferenceError("character outside of valid range");
+                    charRef[0] = replacementChar;
                     return charRef;
-                } else
-                return Character.toChars(charval);
-            }
-        } else { // named
-            // get as many letters as possible, and look for matching entities.
-            String nameRef = reader.consumeLetterThenDigitSequence();
-            boolean looksLegit = reader.matches(';');
-            // found if a base named entity without a ;, or an extended entity with the ;.
-            boolean found = (Entities.isBaseNamedEntity(nameRef) || (Entities.isNamedEntity(nameRef) && looksLegit));
-
-            if (!found) {
-                reader.rewindToMark();
-                if (looksLegit) // named with semicolon
-                    characterReferenceError(String.format("invalid named referenece '%s'", nameRef));
-                return null;
-            }
-            if (inAttribute && (reader.matchesLetter() || reader.matchesDigit() || reader.matchesAny('=', '-', '_'))) {
-                // don't want that to match
-                reader.rewindToMark();
-                return null;
+                } else {
+                    // todo: implement number replacement table
+                    // todo: check for extra illegal unicode points as parse errors
+                    if (charval < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                        charRef[0] = (char) charval;
+                        return charRef;
+                    } else
+                    return Character.toChars(charval);
+                }
+            } else { // named
+                // get as many letters as possible, and look for matching entities.
+                int entity = reader.consumeEntityName(EntityTrie.named);
+                boolean looksLegit = reader.matches(';');
+                // found if a base named entity without a ;, or an extended entity with the ;.
+                boolean found = entity != EntityTrie.noEntity && (EntityTrie.isBase(entity) || looksLegit);
+
+                if (!found) {
+                    reader.rewindToMark();
+                    if (looksLegit && errors.canAddError()) { // named with semicolon
+                        String nameRef = reader.consumeLetterThenDigitSequence();
+                        reader.rewindToMark();
+                        characterReferenceError(String.format("invalid named referenece '%s'", nameRef));
+                    }
+                    return null;
+                }
+                if (inAttribute && (reader.matchesLetter() || reader.matchesDigit() || reader.matchesAny('=', '-', '_'))) {
+                    // don't want that to match
+                    reader.rewindToMark();
+                    return null;
+                }
+                if (!reader.matchConsume(";"))
+                    characterReferenceError("missing semicolon"); // missing semi
+                charRef[0] = EntityTrie.character(entity);
+                return charRef;
             }
-            if (!reader.matchConsume(";"))
-                characterReferenceError("missing semicolon"); // missing semi
-            charRef[0] = Entities.getCharacterByName(nameRef);
-            return charRef;
+        } finally {
+            reader.unmark(); // so the reader need not hold the input behind the mark
         }
     }
 
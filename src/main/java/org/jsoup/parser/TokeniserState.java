@@ -1,7 +1,5 @@
 package org.jsoup.parser;
 
-import java.util.Arrays;
-
 /**
  * States and transition activations for the Tokeniser.
  */
@@ -60,7 +58,7 @@ enum TokeniserState {
                     t.emit(new Token.EOF());
                     break;
                 default:
-                    String data = r.consumeToAny('&', '<', nullChar);
+                    String data = r.consumeData();
                     t.emit(data);
                     break;
             }
@@ -91,7 +89,7 @@ enum TokeniserState {
                     t.emit(new Token.EOF());
                     break;
                 default:
-                    String data = r.consumeToAny('<', nullChar);
+                    String data = r.consumeToAny(rawDataStopChars);
                     t.emit(data);
                     break;
             }
@@ -112,7 +110,7 @@ enum TokeniserState {
                     t.emit(new Token.EOF());
                     break;
                 default:
-                    String data = r.consumeToAny('<', nullChar);
+                    String data = r.consumeToAny(rawDataStopChars);
                     t.emit(data);
                     break;
             }
@@ -184,7 +182,6 @@ enum TokeniserState {
         // from < or </ in data, will have start or end tag pending
         void read(Tokeniser t, CharacterReader r) {
             // previous TagOpen state did NOT consume, will have a letter char in current
-            //String tagName = r.consumeToAnySorted(tagCharsSorted).toLowerCase();
             String tagName = r.consumeTagName().toLowerCase();
             t.tagPending.appendTagName(tagName);
 
@@ -395,7 +392,7 @@ enum TokeniserState {
                     t.emit(replacementChar);
                     break;
                 default:
-                    String data = r.consumeToAny('-', '<', nullChar);
+                    String data = r.consumeToAny(escapedDataStopChars);
                     t.emit(data);
             }
         }
@@ -520,7 +517,7 @@ enum TokeniserState {
                     t.transition(Data);
                     break;
                 default:
-                    String data = r.consumeToAny('-', '<', nullChar);
+                    String data = r.consumeToAny(escapedDataStopChars);
                     t.emit(data);
             }
         }
@@ -645,7 +642,7 @@ enum TokeniserState {
     AttributeName {
         // from before attribute name
         void read(Tokeniser t, CharacterReader r) {
-            String name = r.consumeToAnySorted(attributeNameCharsSorted);
+            String name = r.consumeToAny(attributeNameStopChars);
             t.tagPending.appendAttributeName(name.toLowerCase());
 
             char c = r.consume();
@@ -780,7 +777,7 @@ enum TokeniserState {
     },
     AttributeValue_doubleQuoted {
         void read(Tokeniser t, CharacterReader r) {
-            String value = r.consumeToAnySorted(attributeDoubleValueCharsSorted);
+            String value = r.consumeToAny(attributeDoubleValueStopChars);
             if (value.length() > 0)
                 t.tagPending.appendAttributeValue(value);
             else
@@ -812,7 +809,7 @@ enum TokeniserState {
     },
     AttributeValue_singleQuoted {
         void read(Tokeniser t, CharacterReader r) {
-            String value = r.consumeToAnySorted(attributeSingleValueCharsSorted);
+            String value = r.consumeToAny(attributeSingleValueStopChars);
             if (value.length() > 0)
                 t.tagPending.appendAttributeValue(value);
             else
@@ -844,7 +841,7 @@ enum TokeniserState {
     },
     AttributeValue_unquoted {
         void read(Tokeniser t, CharacterReader r) {
-            String value = r.consumeToAny('\t', '\n', '\r', '\f', ' ', '&', '>', nullChar, '"', '\'', '<', '=', '`');
+            String value = r.consumeToAny(attributeUnquotedValueStopChars);
             if (value.length() > 0)
                 t.tagPending.appendAttributeValue(value);
 
@@ -946,7 +943,9 @@ enum TokeniserState {
             r.unconsume();
             Token.Comment comment = new Token.Comment();
             comment.bogus = true;
-            comment.data.append(r.consumeTo('>'));
+            do { // loops if the reader needs to buffer up
+                comment.data.append(r.consumeTo('>'));
+            } while (!r.matches('>') && !r.isEmpty());
             // todo: replace nullChar with replaceChar
             t.emit(comment);
             t.advanceTransition(Data);
@@ -1044,7 +1043,7 @@ enum TokeniserState {
                     t.transition(Data);
                     break;
                 default:
-                    t.commentPending.data.append(r.consumeToAny('-', nullChar));
+                    t.commentPending.data.append(r.consumeToAny(commentStopChars));
             }
         }
     },
@@ -1645,8 +1644,8 @@ enum TokeniserState {
         void read(Tokeniser t, CharacterReader r) {
             String data = r.consumeTo("]]>");
             t.emit(data);
-            r.matchConsume("]]>");
-            t.transition(Data);
+            if (r.matchConsume("]]>") || r.isEmpty()) // else more to read after buffering up
+                t.transition(Data);
         }
     };
 
@@ -1654,20 +1653,21 @@ enum TokeniserState {
     abstract void read(Tokeniser t, CharacterReader r);
 
     static final char nullChar = '\u0000';
-    private static final char[] attributeSingleValueCharsSorted = new char[]{'\'', '&', nullChar};
-    private static final char[] attributeDoubleValueCharsSorted = new char[]{'"', '&', nullChar};
-    private static final char[] attributeNameCharsSorted = new char[]{'\t', '\n', '\r', '\f', ' ', '/', '=', '>', nullChar, '"', '\'', '<'};
+    // scan tables, for CharacterReader.consumeToAny:
+    private static final boolean[] rawDataStopChars = CharacterReader.scanTable('<', nullChar);
+    private static final boolean[] escapedDataStopChars = CharacterReader.scanTable('-', '<', nullChar);
+    private static final boolean[] commentStopChars = CharacterReader.scanTable('-', nullChar);
+    private static final boolean[] attributeSingleValueStopChars = CharacterReader.scanTable('\'', '&', nullChar);
+    private static final boolean[] attributeDoubleValueStopChars = CharacterReader.scanTable('"', '&', nullChar);
+    private static final boolean[] attributeNameStopChars =
+        CharacterReader.scanTable('\t', '\n', '\r', '\f', ' ', '/', '=', '>', nullChar, '"', '\'', '<');
+    private static final boolean[] attributeUnquotedValueStopChars =
+        CharacterReader.scanTable('\t', '\n', '\r', '\f', ' ', '&', '>', nullChar, '"', '\'', '<', '=', '`');
 
     private static final char replacementChar = Tokeniser.replacementChar;
     private static final String replacementStr = String.valueOf(Tokeniser.replacementChar);
     private static final char eof = CharacterReader.EOF;
 
-    static {
-        Arrays.sort(attributeSingleValueCharsSorted);
-        Arrays.sort(attributeDoubleValueCharsSorted);
-        Arrays.sort(attributeNameCharsSorted);
-    }
-
     /**
      * Handles RawtextEndTagName, ScriptDataEndTagName, and ScriptDataEscapedEndTagName. Same body impl, just
      * different else exit transitions.
@@ -5,7 +5,10 @@ import org.jsoup.nodes.Attributes;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * @author Jonathan Hedley
@@ -18,41 +21,96 @@ abstract class TreeBuilder {
     protected String baseUri; // current base uri, for creating new elements
     protected Token currentToken; // currentToken is used only for error tracking.
     protected ParseErrorList errors; // null when not tracking errors
+    Map<String, Tag> tagSet; // unknown tags seen by this builder, when it keeps its own; else null for the shared set
 
     private Token.StartTag start = new Token.StartTag(); // start tag to process
     private Token.EndTag end  = new Token.EndTag();
 
-    protected void initialiseParse(String input, String baseUri, ParseErrorList errors) {
-        Validate.notNull(input, "String input must not be null");
+    protected void initialiseParse(CharacterReader input, String baseUri, ParseErrorList errors) {
         Validate.notNull(baseUri, "BaseURI must not be null");
 
         doc = new Document(baseUri);
-        reader = new CharacterReader(input);
+        reader = input;
         this.errors = errors;
-        tokeniser = new Tokeniser(reader, errors);
-        stack = new ArrayList<Element>(32);
+        if (tokeniser == null)
+            tokeniser = new Tokeniser(reader, errors);
+        else
+            tokeniser.reset(reader, errors); // keeps its buffers from the last parse
+        if (stack == null)
+            stack = new ArrayList<Element>(32);
+        else
+            stack.clear();
+        currentToken = null;
         this.baseUri = baseUri;
     }
 
+    /**
+     * Drop the references this builder holds to the last parse's input and document, so that they can be garbage
+     * collected while the builder is kept for reuse. The reader, tokeniser and their buffers are kept.
+     */
+    void release() {
+        doc = null;
+        if (stack != null)
+            stack.clear();
+        currentToken = null;
+        errors = null;
+        if (reader != null) {
+            reader.release();
+            tokeniser.reset(reader, ParseErrorList.noTracking());
+        }
+    }
+
+    /**
+     * Get a reader for an input, reusing this builder's reader (and so its string cache) from an earlier parse.
+     */
+    CharacterReader readerFor(String input) {
+        if (reader == null)
+            return new CharacterReader(input);
+        reader.reset(input);
+        return reader;
+    }
+
+    CharacterReader readerFor(Reader input) {
+        if (reader == null)
+            return new CharacterReader(input);
+        reader.reset(input);
+        return reader;
+    }
+
     Document parse(String input, String baseUri) {
         return parse(input, baseUri, ParseErrorList.noTracking());
     }
 
     Document parse(String input, String baseUri, ParseErrorList errors) {
+        Validate.notNull(input, "String input must not be null");
+        return parse(readerFor(input), baseUri, errors);
+    }
+
+    Document parse(Reader input, String baseUri, ParseErrorList errors) {
+        Validate.notNull(input, "Reader input must not be null");
+        return parse(readerFor(input), baseUri, errors);
+    }
+
+    Document parse(CharacterReader input, String baseUri, ParseErrorList errors) {
         initialiseParse(input, baseUri, errors);
         runParser();
         return doc;
     }
 
     protected void runParser() {
-        while (true) {
-            Token token = tokeniser.read();
-            process(token);
-            token.reset();
+        while (stepParser()) { /* empty */ }
+    }
 
-            if (token.type == Token.TokenType.EOF)
-                break;
-        }
+    /**
+     * Reads and processes the next token.
+     * @return false once the EOF token has been processed, true if there is more input to parse.
+     */
+    boolean stepParser() {
+        Token token = tokeniser.read();
+        process(token);
+        token.reset();
+
+        return token.type != Token.TokenType.EOF;
     }
 
     protected abstract boolean process(Token token);
@@ -81,6 +139,22 @@ abstract class TreeBuilder {
     }
 
 
+    /**
+     * Get the Tag for a token's tag name, from this builder's own tag set if it has one.
+     */
+    Tag tagFor(String tagName) {
+        if (tagSet == null)
+            return Tag.valueOf(tagName);
+        return Tag.valueOf(tagName, tagSet, Integer.MAX_VALUE);
+    }
+
+    void keepTagSet(boolean keep) {
+        if (!keep)
+            tagSet = null;
+        else if (tagSet == null)
+            tagSet = new HashMap<String, Tag>();
+    }
+
     protected Element currentElement() {
         int size = stack.size();
         return size > 0 ? stack.get(size-1) : null;
@@ -14,7 +14,7 @@ import java.util.List;
  */
 public class XmlTreeBuilder extends TreeBuilder {
     @Override
-    protected void initialiseParse(String input, String baseUri, ParseErrorList errors) {
+    protected void initialiseParse(CharacterReader input, String baseUri, ParseErrorList errors) {
         super.initialiseParse(input, baseUri, errors);
         stack.add(doc); // place the document onto the stack. differs from HtmlTreeBuilder (not on stack)
         doc.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
@@ -52,17 +52,16 @@ public class XmlTreeBuilder extends TreeBuilder {
     }
 
     Element insert(Token.StartTag startTag) {
-        Tag tag = Tag.valueOf(startTag.name());
+        Tag tag = tagFor(startTag.name());
         // todo: wonder if for xml parsing, should treat all tags as unknown? because it's not html.
+        if (startTag.isSelfClosing() && !tag.isKnownTag()) // unknown tag, remember this is self closing for output
+            tag = tag.selfClosingCopy();
         Element el = new Element(tag, baseUri, startTag.attributes);
         insertNode(el);
-        if (startTag.isSelfClosing()) {
+        if (startTag.isSelfClosing())
             tokeniser.acknowledgeSelfClosingFlag();
-            if (!tag.isKnownTag()) // unknown tag, remember this is self closing for output. see above.
-                tag.setSelfClosing();
-        } else {
+        else
             stack.add(el);
-        }
         return el;
     }
 
@@ -118,7 +117,7 @@ public class XmlTreeBuilder extends TreeBuilder {
     }
 
     List<Node> parseFragment(String inputFragment, String baseUri, ParseErrorList errors) {
-        initialiseParse(inputFragment, baseUri, errors);
+        initialiseParse(readerFor(inputFragment), baseUri, errors);
         runParser();
         return doc.childNodes();
     }
@@ -1,10 +1,22 @@
 package org.jsoup.safety;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.Validate;
 import org.jsoup.nodes.*;
+import org.jsoup.parser.ParseEventHandler;
+import org.jsoup.parser.StreamParser;
 import org.jsoup.parser.Tag;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeFilter.FilterResult;
 import org.jsoup.select.NodeTraversor;
-import org.jsoup.select.NodeVisitor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 
 /**
@@ -23,6 +35,7 @@ import org.jsoup.select.NodeVisitor;
  </p>
  */
 public class Cleaner {
+    private static final int maxParallelTasks = 64; // the body's children are split into at most this many runs
     private Whitelist whitelist;
 
     /**
@@ -50,6 +63,150 @@ public class Cleaner {
         return clean;
     }
 
+    /**
+     Creates a new, clean document, from the original dirty document, cleaning the top-level children of its body in
+     parallel on the executor. The body's children are split into runs, each run is cleaned into its own container as a
+     task, and the results are then joined into the clean body in order. The result is the same as that of
+     {@link #clean(Document)}. Worthwhile for very large documents; a body with fewer than two children is cleaned on
+     the calling thread.
+     <p>
+     The dirty document must not be modified while it is cleaned. The whitelist is read from several threads, so it
+     must not be modified during the clean either (or use a {@link Whitelist#compile() compiled} whitelist).
+     </p>
+     @param dirtyDocument Untrusted base document to clean.
+     @param executor executor to run the cleaning tasks on, e.g. a fixed thread pool
+     @return cleaned document.
+     */
+    public Document clean(Document dirtyDocument, Executor executor) {
+        Validate.notNull(dirtyDocument);
+        Validate.notNull(executor);
+
+        Document clean = Document.createShell(dirtyDocument.baseUri());
+        Element dirtyBody = dirtyDocument.body();
+        if (dirtyBody == null)
+            return clean;
+        final int size = dirtyBody.childNodeSize();
+        if (size < 2) {
+            copySafeNodes(dirtyBody, clean.body());
+            return clean;
+        }
+
+        // the body itself, as the cleaning visitor would copy it, if safe
+        Element dest = clean.body();
+        if (whitelist.isSafeTag(dirtyBody.tagName())) {
+            Element safeBody = createSafeElement(dirtyBody).el;
+            dest.appendChild(safeBody);
+            dest = safeBody;
+        }
+
+        int tasks = Math.min(size, maxParallelTasks);
+        List<FutureTask<Element>> results = new ArrayList<FutureTask<Element>>(tasks);
+        for (int task = 0; task < tasks; task++) {
+            FutureTask<Element> result = new FutureTask<Element>(
+                new RunCleaner(dirtyBody, size * task / tasks, size * (task + 1) / tasks));
+            executor.execute(result);
+            results.add(result);
+        }
+
+        try {
+            for (FutureTask<Element> result : results)
+                moveChildren(result.get(), dest);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while cleaning", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+        return clean;
+    }
+
+    /**
+     Cleans a run of the children of the dirty root into a new container element, which is returned.
+     */
+    private final class RunCleaner implements Callable<Element> {
+        private final Element root;
+        private final int from;
+        private final int to;
+
+        RunCleaner(Element root, int from, int to) {
+            this.root = root;
+            this.from = from;
+            this.to = to;
+        }
+
+        public Element call() {
+            Element container = new Element(Tag.valueOf("body"), root.baseUri());
+            CleaningVisitor cleaningVisitor = new CleaningVisitor(root, container);
+            for (int i = from; i < to; i++)
+                NodeTraversor.filter(cleaningVisitor, root.childNode(i));
+            return container;
+        }
+    }
+
+    // moves the children; removed from the end, so the remaining children don't need to be shifted down
+    private static void moveChildren(Element from, Element to) {
+        Node[] nodes = new Node[from.childNodeSize()];
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            nodes[i] = from.childNode(i);
+            nodes[i].remove();
+        }
+        for (Node node : nodes)
+            to.appendChild(node);
+    }
+
+    /**
+     Cleans a body fragment of untrusted HTML, writing the safe HTML straight to the output as it is parsed. No
+     document is built for either the dirty input or the clean output: the whitelist is applied to each element and
+     attribute as the parser reports it, so memory use is bounded by the nesting of the input rather than its size.
+     (Until the input's first text, its first element is held back, as a {@code <frameset>} could still replace it.)
+     <p>
+     The output is the same as that of {@link org.jsoup.Jsoup#clean(String, String, Whitelist, Document.OutputSettings)}
+     with pretty-printing disabled (the output settings' pretty-print and outline settings are not used). So if the
+     whitelist allows {@code body}, the output is wrapped in a safe {@code body} element, with its enforced attributes.
+     </p>
+     @param bodyHtml untrusted HTML body fragment
+     @param baseUri URL to resolve relative URLs against
+     @param output Appendable to write the clean HTML to
+     @param outputSettings output settings, for the escape mode, charset and syntax of the output
+     @return true if no tags or attributes were removed (the input was {@link #isValid(Document) valid}); false if
+     they were
+     @throws UncheckedIOException if the output throws an IOException
+     */
+    public boolean clean(String bodyHtml, String baseUri, Appendable output, Document.OutputSettings outputSettings) {
+        Validate.notNull(bodyHtml);
+        Validate.notNull(output);
+        Validate.notNull(outputSettings);
+
+        StreamingCleaner cleaner = new StreamingCleaner(output, outputSettings);
+        // the body itself, as the cleaning visitor would copy it, if safe; the fragment's body has no attributes
+        Element body = whitelist.isSafeTag("body") ? new Element(Tag.valueOf("body"), baseUri) : null;
+        if (body != null)
+            cleaner.startElement(body);
+        StreamParser.bodyFragment(bodyHtml, baseUri).parse(cleaner);
+        if (body != null)
+            cleaner.endElement(body);
+        return cleaner.numDiscarded == 0;
+    }
+
+    /**
+     Cleans a body fragment of untrusted HTML, writing the safe HTML straight to the output as it is parsed, with the
+     default output settings.
+     @param bodyHtml untrusted HTML body fragment
+     @param baseUri URL to resolve relative URLs against
+     @param output Appendable to write the clean HTML to
+     @return true if no tags or attributes were removed; false if they were
+     @throws UncheckedIOException if the output throws an IOException
+     @see #clean(String, String, Appendable, Document.OutputSettings)
+     */
+    public boolean clean(String bodyHtml, String baseUri, Appendable output) {
+        return clean(bodyHtml, baseUri, output, new Document.OutputSettings());
+    }
+
     /**
      Determines if the input document is valid, against the whitelist. It is considered valid if all the tags and attributes
      in the input HTML are allowed by the whitelist.
@@ -58,21 +215,77 @@ public class Cleaner {
      using the {@link #clean(Document)} document. If using as a validator, it is recommended to still clean the document
      to ensure enforced attributes are set correctly, and that the output is tidied.
      </p>
+     <p>
+     The document is checked without building a clean copy, and the check stops at the first tag, attribute or other
+     node that would be removed.
+     </p>
      @param dirtyDocument document to test
      @return true if no tags or attributes need to be removed; false if they do
      */
     public boolean isValid(Document dirtyDocument) {
         Validate.notNull(dirtyDocument);
 
-        Document clean = Document.createShell(dirtyDocument.baseUri());
-        int numDiscarded = copySafeNodes(dirtyDocument.body(), clean.body());
-        return numDiscarded == 0;
+        ValidatingFilter filter = new ValidatingFilter(dirtyDocument.body());
+        return NodeTraversor.filter(filter, dirtyDocument.body()) != FilterResult.Stop;
+    }
+
+    /**
+     Determines if the input HTML body fragment is valid, against the whitelist. As {@link #isValid(Document)}, but the
+     input is checked as it is parsed, without building a document; and the parse stops at the first tag, attribute or
+     other node that would be removed.
+     <p>
+     An element is checked when it starts, and its attributes again when it ends if any were added since (by a later
+     duplicate {@code html} or {@code body} tag). For short inputs, {@link #isValid(Document)} on a parsed body
+     fragment is faster; this method suits long inputs that are likely to be invalid early.
+     </p>
+     @param bodyHtml HTML body fragment to test
+     @return true if no tags or attributes need to be removed; false if they do
+     */
+    public boolean isValidBodyHtml(String bodyHtml) {
+        Validate.notNull(bodyHtml);
+
+        StreamParser parser = StreamParser.bodyFragment(bodyHtml, "");
+        ArrayList<Integer> attributeCounts = new ArrayList<Integer>(); // of each open element, when it started
+        while (parser.hasNext()) {
+            StreamParser.Event event = parser.next();
+            switch (event.type()) {
+                case StartElement:
+                    Element el = (Element) event.node();
+                    if (!isSafeElement(el))
+                        return false;
+                    attributeCounts.add(el.attributes().size());
+                    break;
+                case EndElement:
+                    el = (Element) event.node();
+                    if (attributeCounts.remove(attributeCounts.size() - 1) != el.attributes().size() && !isSafeElement(el))
+                        return false; // attributes merged on since it started
+                    break;
+                case Text:
+                case Data: // only within a script or style element, which was checked when it started
+                    break;
+                default: // comments and doctypes are discarded
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    // if the element's tag and all of its attributes are safe; stops at the first that isn't
+    private boolean isSafeElement(Element el) {
+        String tagName = el.tagName();
+        if (!whitelist.isSafeTag(tagName))
+            return false;
+        for (Attribute attr : el.attributes()) {
+            if (!whitelist.isSafeAttribute(tagName, el, attr))
+                return false;
+        }
+        return true;
     }
 
     /**
      Iterates the input and copies trusted nodes (tags, attributes, text) into the destination.
      */
-    private final class CleaningVisitor implements NodeVisitor {
+    private final class CleaningVisitor implements NodeFilter {
         private int numDiscarded = 0;
         private final Element root;
         private Element destination; // current element to append nodes to
@@ -82,7 +295,7 @@ public class Cleaner {
             this.destination = destination;
         }
 
-        public void head(Node source, int depth) {
+        public FilterResult head(Node source, int depth) {
             if (source instanceof Element) {
                 Element sourceEl = (Element) source;
 
@@ -95,6 +308,8 @@ public class Cleaner {
                     destination = destChild;
                 } else if (source != root) { // not a safe tag, so don't add. don't count root against discarded.
                     numDiscarded++;
+                    if (hasOnlyData(sourceEl)) // e.g. script or style; its data would be discarded with it
+                        return FilterResult.SkipEntirely;
                 }
             } else if (source instanceof TextNode) {
                 TextNode sourceText = (TextNode) source;
@@ -107,22 +322,156 @@ public class Cleaner {
             } else { // else, we don't care about comments, xml proc instructions, etc
                 numDiscarded++;
             }
+            return FilterResult.Continue;
         }
 
-        public void tail(Node source, int depth) {
+        public FilterResult tail(Node source, int depth) {
             if (source instanceof Element && whitelist.isSafeTag(source.nodeName())) {
                 destination = destination.parent(); // would have descended, so pop destination stack
             }
+            return FilterResult.Continue;
+        }
+    }
+
+    /**
+     Receives the parse events of the dirty input, and writes out the trusted nodes (tags, attributes, text). Tracks
+     how each open element was written, to know which end tags to write, and if data is in a safe element.
+     */
+    private final class StreamingCleaner implements ParseEventHandler {
+        private int numDiscarded = 0;
+        private final Appendable output;
+        private final Document.OutputSettings outputSettings;
+        private final ArrayList<Written> stack = new ArrayList<Written>(); // per open element, how it was written
+
+        private StreamingCleaner(Appendable output, Document.OutputSettings outputSettings) {
+            this.output = output;
+            this.outputSettings = outputSettings;
+        }
+
+        public void startElement(Element element) {
+            String tagName = element.tagName();
+            if (!whitelist.isSafeTag(tagName)) {
+                stack.add(Written.discarded);
+                numDiscarded++;
+                return;
+            }
+
+            Attributes safeAttrs = new Attributes();
+            for (Attribute attr : element.attributes()) {
+                if (whitelist.isSafeAttribute(tagName, element, attr))
+                    safeAttrs.put(attr);
+                else
+                    numDiscarded++;
+            }
+            safeAttrs.addAll(whitelist.getEnforcedAttributes(tagName));
+
+            Tag tag = Tag.valueOf(tagName); // as the clean element's tag; not the parser's (perhaps self closing) tag
+            try {
+                output.append('<').append(tagName);
+                safeAttrs.html(output, outputSettings);
+                if (tag.isSelfClosing() && element.childNodeSize() == 0) { // children are still attached at start
+                    if (outputSettings.syntax() == Document.OutputSettings.Syntax.html && tag.isEmpty())
+                        output.append('>');
+                    else
+                        output.append(" />");
+                    stack.add(Written.selfClosed);
+                } else {
+                    output.append('>');
+                    stack.add(Written.open);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void endElement(Element element) {
+            if (stack.remove(stack.size() - 1) != Written.open)
+                return;
+            try {
+                output.append("</").append(element.tagName()).append('>');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void text(TextNode text) {
+            try {
+                output.append(Entities.escape(text.getWholeText(), outputSettings));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void data(DataNode data) {
+            if (stack.isEmpty() || stack.get(stack.size() - 1) == Written.discarded)
+                return; // the content of a discarded script or style element; discarded with it
+            try {
+                output.append(data.getWholeData());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public void comment(Comment comment) {
+            numDiscarded++;
+        }
+
+        public void doctype(DocumentType doctype) {
+            numDiscarded++;
+        }
+    }
+
+    private enum Written {
+        discarded, open, selfClosed
+    }
+
+    /**
+     Iterates the input, as the CleaningVisitor would, and stops at the first node that would be discarded.
+     */
+    private final class ValidatingFilter implements NodeFilter {
+        private final Element root;
+
+        private ValidatingFilter(Element root) {
+            this.root = root;
+        }
+
+        public FilterResult head(Node source, int depth) {
+            if (source instanceof Element) {
+                Element sourceEl = (Element) source;
+                if (source == root && !whitelist.isSafeTag(sourceEl.tagName()))
+                    return FilterResult.Continue; // an unsafe root is not copied, but isn't counted against the input
+                return isSafeElement(sourceEl) ? FilterResult.Continue : FilterResult.Stop;
+            } else if (source instanceof TextNode) {
+                return FilterResult.Continue;
+            } else if (source instanceof DataNode && whitelist.isSafeTag(source.parent().nodeName())) {
+                return FilterResult.Continue;
+            } else {
+                return FilterResult.Stop;
+            }
+        }
+
+        public FilterResult tail(Node source, int depth) {
+            return FilterResult.Continue;
         }
     }
 
     private int copySafeNodes(Element source, Element dest) {
         CleaningVisitor cleaningVisitor = new CleaningVisitor(source, dest);
-        NodeTraversor traversor = new NodeTraversor(cleaningVisitor);
-        traversor.traverse(source);
+        NodeTraversor.filter(cleaningVisitor, source);
         return cleaningVisitor.numDiscarded;
     }
 
+    private static boolean hasOnlyData(Element el) {
+        final int size = el.childNodeSize();
+        if (size == 0)
+            return false;
+        for (int i = 0; i < size; i++) {
+            if (!(el.childNode(i) instanceof DataNode))
+                return false;
+        }
+        return true;
+    }
+
     private ElementMeta createSafeElement(Element sourceEl) {
         String sourceTag = sourceEl.tagName();
         Attributes destAttrs = new Attributes();
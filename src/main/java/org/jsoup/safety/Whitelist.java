@@ -10,6 +10,7 @@ import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Attributes;
 import org.jsoup.nodes.Element;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -46,7 +47,11 @@ import java.util.Set;
  <li>{@link #removeEnforcedAttribute}
  <li>{@link #removeProtocols}
  </ul>
- 
+ <p>
+ Once configured, a whitelist can be {@link #compile() compiled} into an immutable form, with lookup tables that are
+ faster to check against, and which can be shared between threads.
+ </p>
+
  <p>
  The cleaner and these whitelists assume that you want to clean a <code>body</code> fragment of HTML (to add user
  supplied HTML into a templated page), and not to clean a full HTML document. If the latter is the case, either wrap the
@@ -476,6 +481,26 @@ public class Whitelist {
         return this;
     }
 
+    /**
+     Compile this whitelist into an immutable whitelist, that allows the same tags, attributes and protocols. Its rules
+     are held in lookup tables keyed directly by tag name and attribute key, with the attributes allowed on all tags
+     already merged into each tag's table, and the enforced attributes of each tag prepared once. So checking an
+     element against it does not allocate. A compiled whitelist is safe to share between threads, and between
+     Cleaners.
+     <p>
+     Later changes to this whitelist do not affect the compiled copy; and the compiled whitelist cannot be modified (its
+     {@code add} and {@code remove} methods throw an {@link UnsupportedOperationException}).
+     </p>
+     <p>
+     A subclass that overrides the tests of this class is not compiled, as its overrides would be lost.
+     </p>
+     @return a compiled, immutable copy of this whitelist; or this whitelist, if already compiled
+     */
+    public Whitelist compile() {
+        Validate.isTrue(getClass() == Whitelist.class, "Cannot compile a subclass of Whitelist");
+        return new CompiledWhitelist(this);
+    }
+
     /**
      * Test if the supplied tag is allowed by this whitelist
      * @param tag test tag
@@ -556,6 +581,165 @@ public class Whitelist {
         return attrs;
     }
     
+    /**
+     A whitelist frozen into lookup tables. Each tag with attribute rules maps attribute keys to their allowed protocols
+     (as prefixes, e.g. {@code http:}), or to {@link #anyProtocol} if the attribute is not URL checked; the
+     attributes allowed on all tags are merged into each tag's map, and are the map for all other tags.
+     */
+    private static final class CompiledWhitelist extends Whitelist {
+        private static final String[] anyProtocol = new String[0];
+        private static final Attributes noAttributes = new Attributes();
+
+        private final Set<String> safeTags;
+        private final Map<String, Map<String, String[]>> tagAttributes;
+        private final Map<String, String[]> allAttributes; // for tags without their own rules
+        private final Map<String, Attributes> enforced; // shared templates; not to be modified
+        private final boolean preserveRelativeLinks;
+
+        CompiledWhitelist(Whitelist source) {
+            Set<String> safeTags = new HashSet<String>();
+            for (TagName tag : source.tagNames)
+                safeTags.add(tag.toString());
+            this.safeTags = Collections.unmodifiableSet(safeTags);
+
+            TagName all = TagName.valueOf(":all");
+            allAttributes = attributeRules(source, all, Collections.<String, String[]>emptyMap());
+            Map<String, Map<String, String[]>> tagAttributes = new HashMap<String, Map<String, String[]>>();
+            for (TagName tag : source.attributes.keySet()) {
+                if (!tag.equals(all))
+                    tagAttributes.put(tag.toString(), attributeRules(source, tag, allAttributes));
+            }
+            this.tagAttributes = Collections.unmodifiableMap(tagAttributes);
+
+            Map<String, Attributes> enforced = new HashMap<String, Attributes>();
+            for (TagName tag : source.enforcedAttributes.keySet())
+                enforced.put(tag.toString(), source.getEnforcedAttributes(tag.toString()));
+            this.enforced = Collections.unmodifiableMap(enforced);
+
+            preserveRelativeLinks = source.preserveRelativeLinks;
+        }
+
+        // the rules for a tag: its own allowed attributes (with its protocols), over those allowed on all tags
+        private static Map<String, String[]> attributeRules(Whitelist source, TagName tag, Map<String, String[]> base) {
+            Map<String, String[]> rules = new HashMap<String, String[]>(base);
+            Set<AttributeKey> keys = source.attributes.get(tag);
+            if (keys == null)
+                return Collections.unmodifiableMap(rules);
+            Map<AttributeKey, Set<Protocol>> protocols = source.protocols.get(tag);
+            for (AttributeKey key : keys) {
+                Set<Protocol> keyProtocols = protocols != null ? protocols.get(key) : null;
+                if (keyProtocols == null) {
+                    rules.put(key.toString(), anyProtocol);
+                } else {
+                    String[] prefixes = new String[keyProtocols.size()];
+                    int i = 0;
+                    for (Protocol protocol : keyProtocols) {
+                        String prot = protocol.toString();
+                        prefixes[i++] = prot.equals("#") ? prot : prot + ":";
+                    }
+                    rules.put(key.toString(), prefixes);
+                }
+            }
+            return Collections.unmodifiableMap(rules);
+        }
+
+        @Override
+        public Whitelist compile() {
+            return this;
+        }
+
+        @Override
+        protected boolean isSafeTag(String tag) {
+            return safeTags.contains(tag);
+        }
+
+        @Override
+        protected boolean isSafeAttribute(String tagName, Element el, Attribute attr) {
+            Map<String, String[]> rules = tagAttributes.get(tagName);
+            if (rules == null)
+                rules = allAttributes;
+            String[] protocols = rules.get(attr.getKey());
+            if (protocols == null)
+                return false;
+            return protocols == anyProtocol || testValidProtocol(el, attr, protocols);
+        }
+
+        private boolean testValidProtocol(Element el, Attribute attr, String[] protocols) {
+            // as in Whitelist: resolve to an absolute URL (and optionally update the attribute), then test prefixes
+            String value = el.absUrl(attr.getKey());
+            if (value.length() == 0)
+                value = attr.getValue();
+            if (!preserveRelativeLinks)
+                attr.setValue(value);
+
+            String lowerValue = value.toLowerCase();
+            for (String prefix : protocols) {
+                if (prefix.equals("#")) {
+                    if (value.startsWith("#") && !value.matches(".*\\s.*"))
+                        return true;
+                } else if (lowerValue.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Attributes getEnforcedAttributes(String tagName) {
+            Attributes attrs = enforced.get(tagName);
+            return attrs != null ? attrs : noAttributes;
+        }
+
+        @Override
+        public Whitelist addTags(String... tags) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist removeTags(String... tags) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist addAttributes(String tag, String... keys) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist removeAttributes(String tag, String... keys) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist addEnforcedAttribute(String tag, String key, String value) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist removeEnforcedAttribute(String tag, String key) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist preserveRelativeLinks(boolean preserve) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist addProtocols(String tag, String key, String... protocols) {
+            throw immutable();
+        }
+
+        @Override
+        public Whitelist removeProtocols(String tag, String key, String... protocols) {
+            throw immutable();
+        }
+
+        private static UnsupportedOperationException immutable() {
+            return new UnsupportedOperationException("A compiled Whitelist cannot be modified");
+        }
+    }
+
     // named types for config. All just hold strings, but here for my sanity.
 
     static class TagName extends TypedValue {
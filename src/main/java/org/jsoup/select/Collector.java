@@ -21,11 +21,34 @@ public class Collector {
      */
     public static Elements collect (Evaluator eval, Element root) {
         Elements elements = new Elements();
-        new NodeTraversor(new Accumulator(root, elements, eval)).traverse(root);
+        StructuralEvaluator.Memo outer = StructuralEvaluator.startMemo(root);
+        try {
+            NodeTraversor.filter(new Accumulator(root, elements, eval), root);
+        } finally {
+            StructuralEvaluator.endMemo(outer);
+        }
         return elements;
     }
 
-    private static class Accumulator implements NodeVisitor {
+    /**
+     Find the first element that matches the evaluator, by visiting root and its descendants in document order, and
+     stopping at the first match.
+     @param eval Evaluator to test elements against
+     @param root root of tree to descend
+     @return the first match; null if none
+     */
+    public static Element findFirst(Evaluator eval, Element root) {
+        FirstFinder finder = new FirstFinder(root, eval);
+        StructuralEvaluator.Memo outer = StructuralEvaluator.startMemo(root);
+        try {
+            NodeTraversor.filter(finder, root);
+        } finally {
+            StructuralEvaluator.endMemo(outer);
+        }
+        return finder.match;
+    }
+
+    private static class Accumulator implements NodeFilter {
         private final Element root;
         private final Elements elements;
         private final Evaluator eval;
@@ -36,16 +59,43 @@ public class Collector {
             this.eval = eval;
         }
 
-        public void head(Node node, int depth) {
+        public FilterResult head(Node node, int depth) {
             if (node instanceof Element) {
                 Element el = (Element) node;
                 if (eval.matches(root, el))
                     elements.add(el);
             }
+            return FilterResult.Continue;
+        }
+
+        public FilterResult tail(Node node, int depth) {
+            return FilterResult.Continue;
+        }
+    }
+
+    private static class FirstFinder implements NodeFilter {
+        private final Element root;
+        private final Evaluator eval;
+        private Element match = null;
+
+        FirstFinder(Element root, Evaluator eval) {
+            this.root = root;
+            this.eval = eval;
+        }
+
+        public FilterResult head(Node node, int depth) {
+            if (node instanceof Element) {
+                Element el = (Element) node;
+                if (eval.matches(root, el)) {
+                    match = el;
+                    return FilterResult.Stop;
+                }
+            }
+            return FilterResult.Continue;
         }
 
-        public void tail(Node node, int depth) {
-            // void
+        public FilterResult tail(Node node, int depth) {
+            return FilterResult.Continue;
         }
     }
 }
@@ -6,17 +6,22 @@ import org.jsoup.nodes.Element;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 
 /**
  * Base combining (and, or) evaluator.
  */
 abstract class CombiningEvaluator extends Evaluator {
-    final ArrayList<Evaluator> evaluators;
+    final ArrayList<Evaluator> evaluators; // as parsed
+    final ArrayList<Evaluator> sortedEvaluators; // cheapest first, for matching
     int num = 0;
+    int cost = 0;
 
     CombiningEvaluator() {
         super();
         evaluators = new ArrayList<Evaluator>();
+        sortedEvaluators = new ArrayList<Evaluator>();
     }
 
     CombiningEvaluator(Collection<Evaluator> evaluators) {
@@ -31,13 +36,32 @@ abstract class CombiningEvaluator extends Evaluator {
     
     void replaceRightMostEvaluator(Evaluator replacement) {
         evaluators.set(num - 1, replacement);
+        updateNumEvaluators();
     }
 
     void updateNumEvaluators() {
         // used so we don't need to bash on size() for every match test
         num = evaluators.size();
+
+        cost = 0;
+        for (Evaluator evaluator : evaluators)
+            cost += evaluator.cost();
+        sortedEvaluators.clear();
+        sortedEvaluators.addAll(evaluators);
+        Collections.sort(sortedEvaluators, costComparator);
+    }
+
+    @Override
+    protected int cost() {
+        return cost;
     }
 
+    private static final Comparator<Evaluator> costComparator = new Comparator<Evaluator>() {
+        public int compare(Evaluator a, Evaluator b) {
+            return a.cost() - b.cost();
+        }
+    };
+
     static final class And extends CombiningEvaluator {
         And(Collection<Evaluator> evaluators) {
             super(evaluators);
@@ -50,7 +74,7 @@ abstract class CombiningEvaluator extends Evaluator {
         @Override
         public boolean matches(Element root, Element node) {
             for (int i = 0; i < num; i++) {
-                Evaluator s = evaluators.get(i);
+                Evaluator s = sortedEvaluators.get(i);
                 if (!s.matches(root, node))
                     return false;
             }
@@ -89,7 +113,7 @@ abstract class CombiningEvaluator extends Evaluator {
         @Override
         public boolean matches(Element root, Element node) {
             for (int i = 0; i < num; i++) {
-                Evaluator s = evaluators.get(i);
+                Evaluator s = sortedEvaluators.get(i);
                 if (s.matches(root, node))
                     return true;
             }
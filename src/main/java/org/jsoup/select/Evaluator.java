@@ -30,6 +30,17 @@ public abstract class Evaluator {
      */
     public abstract boolean matches(Element root, Element element);
 
+    /**
+     * Get the relative cost of testing an element against this evaluator. Combined evaluators are tested cheapest
+     * first, so that an element can be rejected before the more expensive (such as structural or text) tests are run.
+     * The simple selectors cost from 1 to 10.
+     *
+     * @return the relative cost; 5 by default
+     */
+    protected int cost() {
+        return 5;
+    }
+
     /**
      * Evaluator for tag name
      */
@@ -40,11 +51,20 @@ public abstract class Evaluator {
             this.tagName = tagName;
         }
 
+        String tagName() {
+            return tagName;
+        }
+
         @Override
         public boolean matches(Element root, Element element) {
             return (element.tagName().equals(tagName));
         }
 
+        @Override
+        protected int cost() {
+            return 1;
+        }
+
         @Override
         public String toString() {
             return String.format("%s", tagName);
@@ -61,11 +81,20 @@ public abstract class Evaluator {
             this.id = id;
         }
 
+        String id() {
+            return id;
+        }
+
         @Override
         public boolean matches(Element root, Element element) {
             return (id.equals(element.id()));
         }
 
+        @Override
+        protected int cost() {
+            return 2;
+        }
+
         @Override
         public String toString() {
             return String.format("#%s", id);
@@ -83,11 +112,20 @@ public abstract class Evaluator {
             this.className = className;
         }
 
+        String className() {
+            return className;
+        }
+
         @Override
         public boolean matches(Element root, Element element) {
             return (element.hasClass(className));
         }
 
+        @Override
+        protected int cost() {
+            return 6;
+        }
+
         @Override
         public String toString() {
             return String.format(".%s", className);
@@ -110,6 +148,11 @@ public abstract class Evaluator {
             return element.hasAttr(key);
         }
 
+        @Override
+        protected int cost() {
+            return 2;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s]", key);
@@ -261,6 +304,11 @@ public abstract class Evaluator {
             return element.hasAttr(key) && pattern.matcher(element.attr(key)).find();
         }
 
+        @Override
+        protected int cost() {
+            return 8;
+        }
+
         @Override
         public String toString() {
             return String.format("[%s~=%s]", key, pattern.toString());
@@ -285,6 +333,11 @@ public abstract class Evaluator {
             }
             this.value = value.trim().toLowerCase();
         }
+
+        @Override
+        protected int cost() {
+            return 3;
+        }
     }
 
     /**
@@ -370,7 +423,7 @@ public abstract class Evaluator {
 		@Override
 		public boolean matches(Element root, Element element) {
 			final Element p = element.parent();
-			return p != null && !(p instanceof Document) && element.elementSiblingIndex() == p.children().size()-1;
+			return p != null && !(p instanceof Document) && element.elementSiblingIndex() == p.childrenSize()-1;
 		}
     	
 		@Override
@@ -469,7 +522,7 @@ public abstract class Evaluator {
 
         @Override
         protected int calculatePosition(Element root, Element element) {
-        	return element.parent().children().size() - element.elementSiblingIndex();
+        	return element.parent().childrenSize() - element.elementSiblingIndex();
         }
         
 		@Override
@@ -489,10 +542,11 @@ public abstract class Evaluator {
 
 		protected int calculatePosition(Element root, Element element) {
 			int pos = 0;
-        	Elements family = element.parent().children();
-        	for (int i = 0; i < family.size(); i++) {
-        		if (family.get(i).tag().equals(element.tag())) pos++;
-        		if (family.get(i) == element) break;
+        	Element parent = element.parent();
+        	for (int i = 0, size = parent.childrenSize(); i < size; i++) {
+        		Element el = parent.child(i);
+        		if (el.tag().equals(element.tag())) pos++;
+        		if (el == element) break;
         	}
 			return pos;
 		}
@@ -512,9 +566,9 @@ public abstract class Evaluator {
 		@Override
 		protected int calculatePosition(Element root, Element element) {
 			int pos = 0;
-        	Elements family = element.parent().children();
-        	for (int i = element.elementSiblingIndex(); i < family.size(); i++) {
-        		if (family.get(i).tag().equals(element.tag())) pos++;
+        	Element parent = element.parent();
+        	for (int i = element.elementSiblingIndex(), size = parent.childrenSize(); i < size; i++) {
+        		if (parent.child(i).tag().equals(element.tag())) pos++;
         	}
 			return pos;
 		}
@@ -562,7 +616,7 @@ public abstract class Evaluator {
 		@Override
 		public boolean matches(Element root, Element element) {
 			final Element p = element.parent();
-			return p!=null && !(p instanceof Document) && element.siblingElements().size() == 0;
+			return p!=null && !(p instanceof Document) && p.childrenSize() == 1;
 		}
     	@Override
     	public String toString() {
@@ -577,9 +631,8 @@ public abstract class Evaluator {
 			if (p==null || p instanceof Document) return false;
 			
 			int pos = 0;
-        	Elements family = p.children();
-        	for (int i = 0; i < family.size(); i++) {
-        		if (family.get(i).tag().equals(element.tag())) pos++;
+        	for (int i = 0, size = p.childrenSize(); i < size; i++) {
+        		if (p.child(i).tag().equals(element.tag())) pos++;
         	}
         	return pos == 1;
 		}
@@ -633,6 +686,11 @@ public abstract class Evaluator {
             return (element.text().toLowerCase().contains(searchText));
         }
 
+        @Override
+        protected int cost() {
+            return 10;
+        }
+
         @Override
         public String toString() {
             return String.format(":contains(%s", searchText);
@@ -654,6 +712,11 @@ public abstract class Evaluator {
             return (element.ownText().toLowerCase().contains(searchText));
         }
 
+        @Override
+        protected int cost() {
+            return 10;
+        }
+
         @Override
         public String toString() {
             return String.format(":containsOwn(%s", searchText);
@@ -676,6 +739,11 @@ public abstract class Evaluator {
             return m.find();
         }
 
+        @Override
+        protected int cost() {
+            return 10;
+        }
+
         @Override
         public String toString() {
             return String.format(":matches(%s", pattern);
@@ -698,6 +766,11 @@ public abstract class Evaluator {
             return m.find();
         }
 
+        @Override
+        protected int cost() {
+            return 10;
+        }
+
         @Override
         public String toString() {
             return String.format(":matchesOwn(%s", pattern);
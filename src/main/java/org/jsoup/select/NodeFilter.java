@@ -0,0 +1,49 @@
+package org.jsoup.select;
+
+import org.jsoup.nodes.Node;
+
+/**
+ * Node filter interface. Provide an implementing class to {@link NodeTraversor#filter(NodeFilter, Node)} to iterate
+ * through nodes, controlling which parts of the tree are visited.
+ * <p>
+ * Like {@link NodeVisitor}, this interface provides {@code head} and {@code tail} methods, called when a node is first
+ * seen, and when all of its children have been visited. Each returns a {@link FilterResult}, which lets the filter
+ * skip a node's children, skip the node entirely, or stop the traversal.
+ * </p>
+ */
+public interface NodeFilter {
+    /**
+     * Filter decision.
+     */
+    enum FilterResult {
+        /** Continue processing the tree. */
+        Continue,
+        /** Skip the child nodes, but do call {@link NodeFilter#tail(Node, int)} next. */
+        SkipChildren,
+        /** Skip the subtree, and do not call {@link NodeFilter#tail(Node, int)}. */
+        SkipEntirely,
+        /** Stop processing. */
+        Stop
+    }
+
+    /**
+     * Callback for when a node is first visited.
+     *
+     * @param node the node being visited.
+     * @param depth the depth of the node, relative to the root node. E.g., the root node has depth 0, and a child node
+     * of that will have depth 1.
+     * @return filter decision
+     */
+    FilterResult head(Node node, int depth);
+
+    /**
+     * Callback for when a node is last visited, after all of its descendants have been visited. Not called if
+     * {@code head} returned {@link FilterResult#SkipEntirely}.
+     *
+     * @param node the node being visited.
+     * @param depth the depth of the node, relative to the root node. E.g., the root node has depth 0, and a child node
+     * of that will have depth 1.
+     * @return filter decision; only {@link FilterResult#Stop} has an effect here
+     */
+    FilterResult tail(Node node, int depth);
+}
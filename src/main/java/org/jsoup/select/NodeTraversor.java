@@ -1,6 +1,7 @@
 package org.jsoup.select;
 
 import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeFilter.FilterResult;
 
 /**
  * Depth-first node traversor. Use to iterate through all nodes under and including the specified root node.
@@ -45,4 +46,43 @@ public class NodeTraversor {
             }
         }
     }
+
+    /**
+     * Start a depth-first filtering of the root and all of its descendants. The filter's results control whether each
+     * node's children are visited, and whether the traversal continues.
+     * @param filter the filter to call when visiting each node
+     * @param root the root node point to traverse.
+     * @return {@link NodeFilter.FilterResult#Stop} if the filter stopped the traversal; otherwise
+     * {@link NodeFilter.FilterResult#Continue}
+     */
+    public static FilterResult filter(NodeFilter filter, Node root) {
+        Node node = root;
+        int depth = 0;
+
+        while (node != null) {
+            FilterResult result = filter.head(node, depth);
+            if (result == FilterResult.Stop)
+                return result;
+            if (result == FilterResult.Continue && node.childNodeSize() > 0) {
+                node = node.childNode(0);
+                depth++;
+                continue;
+            }
+
+            // no children to visit; tail this node, and any parents that it ends
+            while (true) {
+                if (result != FilterResult.SkipEntirely && filter.tail(node, depth) == FilterResult.Stop)
+                    return FilterResult.Stop;
+                if (node == root)
+                    return FilterResult.Continue;
+                if (node.nextSibling() != null)
+                    break;
+                node = node.parentNode();
+                depth--;
+                result = FilterResult.Continue; // the parent was descended into, so gets its tail
+            }
+            node = node.nextSibling();
+        }
+        return FilterResult.Continue;
+    }
 }
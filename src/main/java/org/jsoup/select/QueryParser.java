@@ -34,7 +34,7 @@ class QueryParser {
      * @param query CSS query
      * @return Evaluator
      */
-    public static Evaluator parse(String query) {
+    static Evaluator parse(String query) {
         QueryParser p = new QueryParser(query);
         return p.parse();
     }
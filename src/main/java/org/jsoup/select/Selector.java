@@ -1,11 +1,15 @@
 package org.jsoup.select;
 
 import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * CSS-like element selector, that finds elements matching a query.
@@ -72,26 +76,78 @@ import java.util.IdentityHashMap;
  * @see Element#select(String)
  */
 public class Selector {
+    private static final int maxCachedQueries = 256;
+    // compiled queries, by query string. an approximate LRU (CLOCK): lookups take no lock, and just mark their entry
+    // used. once full, each new query evicts the first entry the clock hand finds unused since the hand last passed it,
+    // clearing the used marks it passes, so queries in use stay cached while one-off queries cycle out
+    private static final ConcurrentMap<String, CachedSelector> cache = new ConcurrentHashMap<String, CachedSelector>();
+    private static final Object evictLock = new Object();
+    private static Iterator<CachedSelector> clockHand = null; // guarded by evictLock
+
+    private final String query;
     private final Evaluator evaluator;
-    private final Element root;
 
-    private Selector(String query, Element root) {
+    private Selector(String query, Evaluator evaluator) {
+        this.query = query;
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Compile a CSS query into a selector, which can be used to select from many roots. A compiled selector is immutable,
+     * so may be shared between threads. Compiled queries are cached (up to 256, keeping those in use), so repeating a
+     * query does not parse it again.
+     *
+     * @param query CSS selector
+     * @return the compiled selector
+     * @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     */
+    public static Selector compile(String query) {
         Validate.notNull(query);
         query = query.trim();
         Validate.notEmpty(query);
-        Validate.notNull(root);
 
-        this.evaluator = QueryParser.parse(query);
+        CachedSelector cached = cache.get(query);
+        if (cached != null) {
+            if (!cached.used)
+                cached.used = true; // only written when it changes, so hits on a hot query don't contend
+            return cached.selector;
+        }
 
-        this.root = root;
+        Selector selector = new Selector(query, QueryParser.parse(query)); // a race just parses twice
+        if (cache.size() >= maxCachedQueries)
+            evictOne();
+        cache.put(query, new CachedSelector(selector));
+        return selector;
     }
 
-    private Selector(Evaluator evaluator, Element root) {
-        Validate.notNull(evaluator);
-        Validate.notNull(root);
+    // advances the clock hand to the first entry not used since it was last passed, and evicts it
+    private static void evictOne() {
+        synchronized (evictLock) {
+            // one full sweep clears every used mark, so an entry is found within two
+            for (int i = 0; i <= 2 * maxCachedQueries; i++) {
+                if (clockHand == null || !clockHand.hasNext()) {
+                    clockHand = cache.values().iterator();
+                    if (!clockHand.hasNext())
+                        return;
+                }
+                CachedSelector cached = clockHand.next();
+                if (cached.used) {
+                    cached.used = false;
+                } else {
+                    clockHand.remove();
+                    return;
+                }
+            }
+        }
+    }
 
-        this.evaluator = evaluator;
-        this.root = root;
+    private static final class CachedSelector {
+        final Selector selector;
+        volatile boolean used = false; // set on each lookup; cleared as the clock hand passes
+
+        CachedSelector(Selector selector) {
+            this.selector = selector;
+        }
     }
 
     /**
@@ -103,7 +159,7 @@ public class Selector {
      * @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
      */
     public static Elements select(String query, Element root) {
-        return new Selector(query, root).select();
+        return compile(query).select(root);
     }
 
     /**
@@ -114,7 +170,8 @@ public class Selector {
      * @return matching elements, empty if none
      */
     public static Elements select(Evaluator evaluator, Element root) {
-        return new Selector(evaluator, root).select();
+        Validate.notNull(evaluator);
+        return new Selector(evaluator.toString(), evaluator).select(root);
     }
 
     /**
@@ -126,14 +183,88 @@ public class Selector {
      */
     public static Elements select(String query, Iterable<Element> roots) {
         Validate.notEmpty(query);
+        return compile(query).select(roots);
+    }
+
+    /**
+     * Find the first element that matches the selector, stopping the search there.
+     *
+     * @param query CSS selector
+     * @param root  root element to descend into
+     * @return the first matching element, or null if none
+     * @throws Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     */
+    public static Element selectFirst(String query, Element root) {
+        return compile(query).selectFirst(root);
+    }
+
+    /**
+     * Find the first element that matches this selector, stopping the search there. This is cheaper than
+     * {@code select(root).first()}, which finds every match.
+     *
+     * @param root root element to descend into
+     * @return the first matching element (in document order), or null if none
+     */
+    public Element selectFirst(Element root) {
+        Validate.notNull(root);
+        Document doc = root.ownerDocument();
+        Elements candidates = doc != null ? indexedCandidates(evaluator, root, doc.indexElements()) : null;
+        if (candidates == null)
+            return Collector.findFirst(evaluator, root);
+
+        StructuralEvaluator.Memo outer = StructuralEvaluator.startMemo(root);
+        try {
+            for (Element el : candidates) {
+                if (evaluator.matches(root, el))
+                    return el;
+            }
+            return null;
+        } finally {
+            StructuralEvaluator.endMemo(outer);
+        }
+    }
+
+    /**
+     * Find elements matching this selector.
+     *
+     * @param root root element to descend into
+     * @return matching elements, empty if none
+     */
+    public Elements select(Element root) {
+        Validate.notNull(root);
+        Document doc = root.ownerDocument();
+        Elements candidates = doc != null ? indexedCandidates(evaluator, root, doc.indexElements()) : null;
+        if (candidates == null)
+            return Collector.collect(evaluator, root);
+
+        // the document's indexes gave the candidates, so only they need testing against the full query
+        Elements elements = new Elements();
+        StructuralEvaluator.Memo outer = StructuralEvaluator.startMemo(root);
+        try {
+            for (Element el : candidates) {
+                if (evaluator.matches(root, el))
+                    elements.add(el);
+            }
+        } finally {
+            StructuralEvaluator.endMemo(outer);
+        }
+        return elements;
+    }
+
+    /**
+     * Find elements matching this selector.
+     *
+     * @param roots root elements to descend into
+     * @return matching elements, empty if none. An element found from more than one root is only included once.
+     */
+    public Elements select(Iterable<Element> roots) {
         Validate.notNull(roots);
-        Evaluator evaluator = QueryParser.parse(query);
         ArrayList<Element> elements = new ArrayList<Element>();
         IdentityHashMap<Element, Boolean> seenElements = new IdentityHashMap<Element, Boolean>();
         // dedupe elements by identity, not equality
 
         for (Element root : roots) {
-            final Elements found = select(evaluator, root);
+            final Elements found = select(root);
             for (Element el : found) {
                 if (!seenElements.containsKey(el)) {
                     elements.add(el);
@@ -144,8 +275,50 @@ public class Selector {
         return new Elements(elements);
     }
 
-    private Elements select() {
-        return Collector.collect(evaluator, root);
+    /**
+     * Get the evaluator this selector was compiled to.
+     * @return evaluator
+     */
+    public Evaluator evaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Get the query this selector was compiled from.
+     * @return query
+     */
+    @Override
+    public String toString() {
+        return query;
+    }
+
+    /**
+     * Find the fewest candidate elements for an evaluator from the document's indexes, by the simple selectors (#id,
+     * and if indexed, tag and .class) that every match must satisfy, such as the {@code a} and {@code .price} of
+     * {@code div a.price}.
+     * @return the elements under the root matching the most selective indexed simple selector, or null if none
+     */
+    private static Elements indexedCandidates(Evaluator eval, Element root, boolean tagsAndClasses) {
+        if (eval instanceof CombiningEvaluator.And) {
+            CombiningEvaluator.And and = (CombiningEvaluator.And) eval;
+            Elements best = null;
+            for (int i = 0; i < and.num; i++) {
+                Elements found = indexedCandidates(and.evaluators.get(i), root, tagsAndClasses);
+                if (found != null && (best == null || found.size() < best.size()))
+                    best = found;
+            }
+            return best;
+        } else if (eval instanceof Evaluator.Id) {
+            String id = ((Evaluator.Id) eval).id();
+            return id.length() > 0 ? root.getElementsById(id) : null;
+        } else if (tagsAndClasses && eval instanceof Evaluator.Tag) {
+            String tagName = ((Evaluator.Tag) eval).tagName();
+            return tagName.length() > 0 ? root.getElementsByTag(tagName) : null;
+        } else if (tagsAndClasses && eval instanceof Evaluator.Class) {
+            String className = ((Evaluator.Class) eval).className();
+            return className.length() > 0 ? root.getElementsByClass(className) : null;
+        }
+        return null;
     }
 
     // exclude set. package open so that Elements can implement .not() selector.
@@ -2,16 +2,78 @@ package org.jsoup.select;
 
 import org.jsoup.nodes.Element;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 /**
  * Base structural evaluator.
+ * <p>
+ * Within a select, structural evaluators memoise their results by element, so that the candidates that share
+ * ancestors, siblings or descendants don't evaluate them again. E.g. for {@code div p}, each ancestor of the {@code p}s
+ * is tested against {@code div} once, rather than once per descendant {@code p}.
+ * </p>
  */
 abstract class StructuralEvaluator extends Evaluator {
     Evaluator evaluator;
 
+    private static final ThreadLocal<Memo> currentMemo = new ThreadLocal<Memo>();
+
+    /**
+     * Start memoising structural results for a select from a root, on this thread. The tree must not be modified until
+     * {@link #endMemo(Memo)}.
+     * @param root the root of the select
+     * @return the enclosing memo (if selects are nested), to restore at the end
+     */
+    static Memo startMemo(Element root) {
+        Memo outer = currentMemo.get();
+        currentMemo.set(new Memo(root));
+        return outer;
+    }
+
+    static void endMemo(Memo outer) {
+        if (outer == null)
+            currentMemo.remove();
+        else
+            currentMemo.set(outer);
+    }
+
+    /**
+     * Get this evaluator's memoised results by element.
+     * @return the results for the current select, or null if not memoising (or for a different root)
+     */
+    final Map<Element, Boolean> memo(Element root) {
+        Memo memo = currentMemo.get();
+        if (memo == null || memo.root != root)
+            return null;
+        if (memo.results == null)
+            memo.results = new IdentityHashMap<StructuralEvaluator, IdentityHashMap<Element, Boolean>>();
+        IdentityHashMap<Element, Boolean> results = memo.results.get(this);
+        if (results == null) {
+            results = new IdentityHashMap<Element, Boolean>();
+            memo.results.put(this, results);
+        }
+        return results;
+    }
+
+    static final class Memo {
+        private final Element root;
+        private IdentityHashMap<StructuralEvaluator, IdentityHashMap<Element, Boolean>> results; // created on use
+
+        private Memo(Element root) {
+            this.root = root;
+        }
+    }
+
     static class Root extends Evaluator {
         public boolean matches(Element root, Element element) {
             return root == element;
         }
+
+        @Override
+        protected int cost() {
+            return 1;
+        }
     }
 
     static class Has extends StructuralEvaluator {
@@ -20,11 +82,49 @@ abstract class StructuralEvaluator extends Evaluator {
         }
 
         public boolean matches(Element root, Element element) {
-            for (Element e : element.getAllElements()) {
-                if (e != element && evaluator.matches(root, e))
-                    return true;
+            Map<Element, Boolean> memo = memo(root);
+            if (memo == null) {
+                for (Element e : element.getAllElements()) {
+                    if (e != element && evaluator.matches(root, e))
+                        return true;
+                }
+                return false;
             }
-            return false;
+
+            Boolean known = memo.get(element);
+            if (known != null)
+                return known;
+
+            // list the subtree's elements not yet known, parents before children; then resolve children first, so
+            // each element is found from its children's results, and each is evaluated once
+            ArrayList<Element> unknown = new ArrayList<Element>();
+            unknown.add(element);
+            for (int i = 0; i < unknown.size(); i++) {
+                Element el = unknown.get(i);
+                for (int c = 0, size = el.childrenSize(); c < size; c++) {
+                    Element child = el.child(c);
+                    if (!memo.containsKey(child))
+                        unknown.add(child);
+                }
+            }
+            for (int i = unknown.size() - 1; i >= 0; i--) {
+                Element el = unknown.get(i);
+                boolean found = false;
+                for (int c = 0, size = el.childrenSize(); c < size; c++) {
+                    Element child = el.child(c);
+                    if (memo.get(child) || evaluator.matches(root, child)) {
+                        found = true;
+                        break;
+                    }
+                }
+                memo.put(el, found);
+            }
+            return memo.get(element);
+        }
+
+        @Override
+        protected int cost() {
+            return 10 * evaluator.cost();
         }
 
         @Override
@@ -42,6 +142,11 @@ abstract class StructuralEvaluator extends Evaluator {
             return !evaluator.matches(root, node);
         }
 
+        @Override
+        protected int cost() {
+            return 2 + evaluator.cost();
+        }
+
         @Override
         public String toString() {
             return String.format(":not%s", evaluator);
@@ -57,15 +162,53 @@ abstract class StructuralEvaluator extends Evaluator {
             if (root == element)
                 return false;
 
-            Element parent = element.parent();
+            Map<Element, Boolean> memo = memo(root);
+            if (memo == null) {
+                Element parent = element.parent();
+                while (true) {
+                    if (evaluator.matches(root, parent))
+                        return true;
+                    if (parent == root)
+                        break;
+                    parent = parent.parent();
+                }
+                return false;
+            }
+
+            // walk up to a matching or known ancestor; the result holds for every element on the way
+            ArrayList<Element> path = new ArrayList<Element>();
+            Element el = element;
+            boolean found;
             while (true) {
-                if (evaluator.matches(root, parent))
-                    return true;
-                if (parent == root)
+                Boolean known = memo.get(el);
+                if (known != null) {
+                    found = known;
+                    break;
+                }
+                path.add(el);
+                Element parent = el.parent();
+                if (parent == null) {
+                    found = false;
+                    break;
+                }
+                if (evaluator.matches(root, parent)) {
+                    found = true;
                     break;
-                parent = parent.parent();
+                }
+                if (parent == root) {
+                    found = false;
+                    break;
+                }
+                el = parent;
             }
-            return false;
+            for (Element e : path)
+                memo.put(e, found);
+            return found;
+        }
+
+        @Override
+        protected int cost() {
+            return 2 * evaluator.cost();
         }
 
         @Override
@@ -84,7 +227,23 @@ abstract class StructuralEvaluator extends Evaluator {
                 return false;
 
             Element parent = element.parent();
-            return parent != null && evaluator.matches(root, parent);
+            if (parent == null)
+                return false;
+
+            Map<Element, Boolean> memo = memo(root); // siblings share the parent's result
+            if (memo == null)
+                return evaluator.matches(root, parent);
+            Boolean known = memo.get(parent);
+            if (known == null) {
+                known = evaluator.matches(root, parent);
+                memo.put(parent, known);
+            }
+            return known;
+        }
+
+        @Override
+        protected int cost() {
+            return 1 + evaluator.cost();
         }
 
         @Override
@@ -102,15 +261,49 @@ abstract class StructuralEvaluator extends Evaluator {
             if (root == element)
                 return false;
 
-            Element prev = element.previousElementSibling();
+            Map<Element, Boolean> memo = memo(root);
+            if (memo == null) {
+                Element prev = element.previousElementSibling();
+
+                while (prev != null) {
+                    if (evaluator.matches(root, prev))
+                        return true;
 
-            while (prev != null) {
-                if (evaluator.matches(root, prev))
-                    return true;
+                    prev = prev.previousElementSibling();
+                }
+                return false;
+            }
 
-                prev = prev.previousElementSibling();
+            // walk back to a matching or known sibling; the result holds for every sibling on the way
+            ArrayList<Element> path = new ArrayList<Element>();
+            Element el = element;
+            boolean found;
+            while (true) {
+                Boolean known = memo.get(el);
+                if (known != null) {
+                    found = known;
+                    break;
+                }
+                path.add(el);
+                Element prev = el.previousElementSibling();
+                if (prev == null) {
+                    found = false;
+                    break;
+                }
+                if (evaluator.matches(root, prev)) {
+                    found = true;
+                    break;
+                }
+                el = prev;
             }
-            return false;
+            for (Element e : path)
+                memo.put(e, found);
+            return found;
+        }
+
+        @Override
+        protected int cost() {
+            return 3 * evaluator.cost();
         }
 
         @Override
@@ -132,6 +325,11 @@ abstract class StructuralEvaluator extends Evaluator {
             return prev != null && evaluator.matches(root, prev);
         }
 
+        @Override
+        protected int cost() {
+            return 1 + evaluator.cost();
+        }
+
         @Override
         public String toString() {
             return String.format(":prev%s", evaluator);
@@ -1,10 +1,13 @@
 package org.jsoup.helper;
 
-import java.io.UnsupportedEncodingException;
 import org.jsoup.nodes.Document;
 import org.jsoup.parser.Parser;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
@@ -44,6 +47,29 @@ public class DataUtilTest {
         assertEquals("UTF-8", doc.outputSettings().charset().displayName());
     }
 
+    @Test public void supportsUtf16ByteOrderMark() throws IOException {
+        String html = "\uFEFF<html><head><title>One</title></head><body>Two \u4E2D</body></html>";
+        ByteBuffer buffer = Charset.forName("UTF-16LE").encode(html);
+        Document doc = DataUtil.parseByteData(buffer, "ISO-8859-1", "http://foo.com/", Parser.htmlParser());
+        assertEquals("One", doc.head().text());
+        assertEquals("Two \u4E2D", doc.body().text());
+        assertEquals("UTF-16", doc.outputSettings().charset().name());
+    }
+
+    @Test public void detectsMetaCharsetAndStreamsLargeInput() throws IOException {
+        StringBuilder html = new StringBuilder("<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=gb2312\"><title>\u767E\u5EA6</title></head><body>");
+        for (int i = 0; i < 2000; i++)
+            html.append("<p>\u767E\u5EA6\u4E00\u4E0B ").append(i).append("</p>");
+        html.append("</body></html>");
+
+        InputStream in = new ByteArrayInputStream(html.toString().getBytes("GB2312"));
+        Document doc = DataUtil.load(in, null, "http://example.com/");
+        assertEquals("GB2312", doc.outputSettings().charset().displayName());
+        assertEquals("\u767E\u5EA6", doc.title());
+        assertEquals(2000, doc.select("p").size());
+        assertEquals("\u767E\u5EA6\u4E00\u4E0B 1999", doc.select("p").last().text());
+    }
+
     @Test
     public void shouldNotThrowExceptionOnEmptyCharset() {
         assertEquals(null, DataUtil.getCharsetFromContentType("text/html; charset="));
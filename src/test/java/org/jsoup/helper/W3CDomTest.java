@@ -4,6 +4,13 @@ import org.jsoup.Jsoup;
 import org.jsoup.integration.ParseTest;
 import org.junit.Test;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 
 import java.io.File;
 import java.io.IOException;
@@ -48,5 +55,69 @@ public class W3CDomTest {
         String out = w3c.asString(wDoc);
         assertTrue(out.contains("ipod"));
     }
-}
 
+    @Test
+    public void convertsNamespaces() {
+        String html = "<html xmlns='http://www.w3.org/1999/xhtml'><body><p>One</p>" +
+            "<svg xmlns='http://www.w3.org/2000/svg' xmlns:xlink='http://www.w3.org/1999/xlink'>" +
+            "<use xlink:href='#a'/></svg><x:foo>Undeclared</x:foo></body></html>";
+        org.jsoup.nodes.Document doc = Jsoup.parse(html);
+
+        Document wDoc = new W3CDom().fromJsoup(doc);
+        Element htmlEl = wDoc.getDocumentElement();
+        assertEquals("http://www.w3.org/1999/xhtml", htmlEl.getNamespaceURI());
+        Node p = wDoc.getElementsByTagNameNS("http://www.w3.org/1999/xhtml", "p").item(0);
+        assertEquals("One", p.getTextContent());
+
+        Element svg = (Element) wDoc.getElementsByTagNameNS("http://www.w3.org/2000/svg", "svg").item(0);
+        assertEquals("svg", svg.getLocalName());
+        Element use = (Element) svg.getFirstChild();
+        assertEquals("http://www.w3.org/2000/svg", use.getNamespaceURI());
+        assertEquals("#a", use.getAttributeNS("http://www.w3.org/1999/xlink", "href"));
+        assertEquals("Undeclared", wDoc.getElementsByTagName("x:foo").item(0).getTextContent());
+    }
+
+    @Test
+    public void convertsNamesThatAreNotQualifiedNames() {
+        String html = "<svg xmlns:a='u'><a:b:c>One</a:b:c></svg><p xmlns:x='u' x:y:z=1 xmlns:q:r=2>Two</p>";
+        W3CDom w3c = new W3CDom();
+        Document wDoc = w3c.fromJsoup(Jsoup.parse(html));
+        Element abc = (Element) wDoc.getElementsByTagName("a:b:c").item(0);
+        assertEquals("One", abc.getTextContent());
+        Element p = (Element) wDoc.getElementsByTagName("p").item(0);
+        assertEquals("1", p.getAttribute("x:y:z"));
+        assertEquals("2", p.getAttribute("xmlns:q:r"));
+        assertTrue(w3c.asString(wDoc).contains("Two"));
+    }
+
+    @Test
+    public void reusesBuilderAndTransformer() {
+        W3CDom w3c = new W3CDom();
+        String one = w3c.asString(w3c.fromJsoup(Jsoup.parse("<p>One")));
+        String two = w3c.asString(w3c.fromJsoup(Jsoup.parse("<p>Two")));
+        assertTrue(one.contains("<p>One</p>"));
+        assertTrue(two.contains("<p>Two</p>"));
+        assertEquals(one.replace("One", "Two"), two);
+    }
+
+    @Test
+    public void streamsSaxEvents() throws Exception {
+        String html = "<html xmlns='http://www.w3.org/1999/xhtml'><head><title>T</title></head>" +
+            "<body><p class=one>Text &amp; more</p><!-- comment --><script>a < b</script></body></html>";
+        org.jsoup.nodes.Document doc = Jsoup.parse(html);
+        W3CDom w3c = new W3CDom();
+
+        // transform the SAX events into a DOM, with an identity transformer, to compare with the direct conversion
+        SAXTransformerFactory factory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        TransformerHandler handler = factory.newTransformerHandler();
+        DOMResult result = new DOMResult();
+        handler.setResult(result);
+        w3c.convert(doc, handler);
+
+        Document streamed = (Document) result.getNode();
+        assertEquals(w3c.asString(w3c.fromJsoup(doc)), w3c.asString(streamed));
+        Element p = (Element) streamed.getElementsByTagNameNS("http://www.w3.org/1999/xhtml", "p").item(0);
+        assertEquals("one", p.getAttribute("class"));
+        assertEquals("Text & more", p.getTextContent());
+    }
+}
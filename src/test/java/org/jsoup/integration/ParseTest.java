@@ -3,6 +3,7 @@ package org.jsoup.integration;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
 import org.jsoup.select.Elements;
 import org.junit.Test;
 
@@ -33,6 +34,20 @@ public class ParseTest {
 
     }
 
+    @Test
+    public void testParseFromReader() throws IOException {
+        File in = getFile("/htmltests/yahoo-jp.html");
+        Document fromString = Jsoup.parse(in, "UTF-8", "http://www.yahoo.co.jp/index.html");
+        Reader reader = new InputStreamReader(new FileInputStream(in), "UTF-8");
+        Document fromReader;
+        try {
+            fromReader = Parser.htmlParser().parseInput(reader, "http://www.yahoo.co.jp/index.html");
+        } finally {
+            reader.close();
+        }
+        assertEquals(fromString.outerHtml(), fromReader.outerHtml());
+    }
+
     @Test
     public void testNewsHomepage() throws IOException {
         File in = getFile("/htmltests/news-com-au-home.html");
@@ -4,6 +4,9 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import java.util.Iterator;
+import java.util.Map;
+
 /**
  * Tests for Attributes.
  *
@@ -28,4 +31,85 @@ public class AttributesTest {
         assertEquals(a.html(), a.toString());
     }
 
+    @Test public void keepsInsertionOrderThroughReplaceAndRemove() {
+        Attributes a = new Attributes();
+        a.put("one", "1");
+        a.put("two", "2");
+        a.put("three", "3");
+        a.put("Two", "2b");
+        a.remove("one");
+        a.put("four", true);
+
+        assertEquals(3, a.size());
+        assertEquals(" two=\"2b\" three=\"3\" four", a.html());
+        assertEquals("", a.get("four"));
+        assertFalse(a.hasKey("one"));
+        assertEquals("", a.get("one"));
+    }
+
+    @Test public void viewsWriteThrough() {
+        Attributes a = new Attributes();
+        a.put("href", "/foo");
+        a.put("checked", true);
+
+        Attribute href = a.asList().get(0);
+        assertEquals("href", href.getKey());
+        assertEquals("/foo", href.setValue("/bar"));
+        assertEquals("/bar", a.get("href"));
+
+        Attribute checked = a.iterator().next(); // first is href
+        assertEquals("href", checked.getKey());
+        assertTrue(a.asList().get(1) instanceof BooleanAttribute);
+
+        Attribute clone = href.clone();
+        clone.setValue("/qux");
+        assertEquals("/bar", a.get("href"));
+    }
+
+    @Test public void putCopiesAttribute() {
+        Attributes a = new Attributes();
+        Attribute attr = new Attribute("title", "One");
+        a.put(attr);
+        attr.setValue("Two");
+        assertEquals("One", a.get("title"));
+    }
+
+    @Test public void equalityIgnoresOrder() {
+        Attributes a = new Attributes();
+        a.put("one", "1");
+        a.put("two", true);
+        Attributes b = new Attributes();
+        b.put("two", "");
+        b.put("one", "1");
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        b.put("one", "2");
+        assertFalse(a.equals(b));
+    }
+
+    @Test public void cloneIsIndependent() {
+        Attributes a = new Attributes();
+        a.put("one", "1");
+        Attributes clone = a.clone();
+        clone.put("two", "2");
+        clone.put("one", "1b");
+        assertEquals(1, a.size());
+        assertEquals("1", a.get("one"));
+        assertEquals(" one=\"1b\" two=\"2\"", clone.html());
+    }
+
+    @Test public void datasetRemove() {
+        Attributes a = new Attributes();
+        a.put("data-one", "1");
+        a.put("title", "T");
+        a.put("data-two", "2");
+        Iterator<Map.Entry<String, String>> it = a.dataset().entrySet().iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        assertEquals(" title=\"T\"", a.html());
+    }
+
 }
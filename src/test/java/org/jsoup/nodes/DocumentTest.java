@@ -1,14 +1,19 @@
 package org.jsoup.nodes;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import org.jsoup.Jsoup;
 import org.jsoup.TextUtil;
+import org.jsoup.UncheckedIOException;
 import org.jsoup.integration.ParseTest;
 import org.jsoup.nodes.Document.OutputSettings.Syntax;
+import org.jsoup.parser.Tag;
 import static org.junit.Assert.*;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -30,6 +35,123 @@ public class DocumentTest {
         assertEquals(1, doc.select("head").size());
     }
     
+    @Test public void getElementByIdTracksChanges() {
+        Document doc = Jsoup.parse("<div id=a><p id=b>One</p></div><div id=c></div>");
+        Element b = doc.getElementById("b");
+        assertEquals("One", b.text());
+        assertNull(doc.getElementById("z"));
+
+        b.attr("id", "z"); // id change
+        assertNull(doc.getElementById("b"));
+        assertSame(b, doc.getElementById("z"));
+
+        b.remove();
+        assertNull(doc.getElementById("z"));
+
+        doc.getElementById("c").appendElement("span").attr("id", "d").html("<i id=e>Two</i>");
+        assertEquals("Two", doc.getElementById("e").text());
+
+        Element a = doc.getElementById("a");
+        Element replacement = new Element(Tag.valueOf("p"), "").attr("id", "f");
+        a.replaceWith(replacement);
+        assertNull(doc.getElementById("a"));
+        assertSame(replacement, doc.getElementById("f"));
+
+        doc.getElementById("c").empty();
+        assertNull(doc.getElementById("d"));
+        assertNull(doc.getElementById("e"));
+
+        doc.getElementById("c").attributes().remove("id"); // through attributes
+        assertNull(doc.getElementById("c"));
+    }
+
+    @Test public void getElementByIdFindsFirstOfDuplicates() {
+        Document doc = Jsoup.parse("<p id=a>One</p><p id=b>Two</p>");
+        assertEquals("One", doc.getElementById("a").text());
+
+        doc.body().prependElement("p").attr("id", "a").text("Zero"); // added before the indexed element
+        assertEquals("Zero", doc.getElementById("a").text());
+        assertEquals(2, doc.getElementsById("a").size());
+
+        doc.getElementById("a").remove();
+        assertEquals("One", doc.getElementById("a").text());
+
+        Element two = doc.getElementById("b");
+        assertNull(two.getElementById("a")); // only under this element
+        assertSame(two, two.getElementById("b"));
+    }
+
+    @Test public void clonedDocumentHasOwnIdIndex() {
+        Document doc = Jsoup.parse("<p id=a>One</p>");
+        Element one = doc.getElementById("a");
+        Document clone = doc.clone();
+        Element cloneOne = clone.getElementById("a");
+        assertNotSame(one, cloneOne);
+        assertEquals("One", cloneOne.text());
+
+        cloneOne.remove();
+        assertNull(clone.getElementById("a"));
+        assertSame(one, doc.getElementById("a"));
+    }
+
+    @Test public void idIndexFollowsElementsBetweenDocuments() {
+        Document indexed = Jsoup.parse("<div id=a></div>");
+        Document other = Jsoup.parse("<div id=b></div>");
+        assertNotNull(indexed.getElementById("a")); // builds the index
+
+        Element b = other.getElementById("b");
+        indexed.body().appendChild(b);
+        assertSame(b, indexed.getElementById("b"));
+        b.attr("id", "c");
+        assertNull(indexed.getElementById("b"));
+        assertSame(b, indexed.getElementById("c"));
+
+        other.body().appendChild(b); // out of the indexed document: its changes no longer touch the index
+        b.attr("id", "a");
+        assertEquals(1, indexed.getElementsById("a").size());
+        assertNull(indexed.getElementById("c"));
+
+        Element copy = indexed.getElementById("a").clone();
+        copy.attr("id", "d"); // a detached clone is not in the index
+        assertNull(indexed.getElementById("d"));
+        indexed.body().appendChild(copy);
+        assertSame(copy, indexed.getElementById("d"));
+    }
+
+    @Test public void indexesElementsByTagAndClass() {
+        Document doc = Jsoup.parse("<div class='Product'><a class=price>1</a></div><div class=product><a>2</a><a class='price sale'>3</a></div>");
+        doc.indexElements(true);
+        assertTrue(doc.indexElements());
+        assertEquals(2, doc.getElementsByTag("div").size());
+        assertEquals(2, doc.getElementsByClass("product").size());
+        assertEquals("13", doc.getElementsByClass("PRICE").text().replace(" ", ""));
+
+        Element second = doc.getElementsByClass("product").get(1);
+        assertEquals("23", second.getElementsByTag("a").text().replace(" ", ""));
+
+        second.child(0).addClass("price"); // class change, shares a key with indexed elements
+        assertEquals("123", doc.getElementsByClass("price").text().replace(" ", ""));
+        second.child(1).removeClass("price");
+        assertEquals("12", doc.getElementsByClass("price").text().replace(" ", ""));
+        assertEquals(1, doc.getElementsByClass("sale").size());
+
+        second.child(1).tagName("span"); // tag change
+        assertEquals(2, doc.getElementsByTag("a").size());
+        assertEquals("3", doc.getElementsByTag("span").text());
+
+        doc.body().prependElement("a").text("0"); // added before the indexed elements
+        assertEquals("012", doc.getElementsByTag("a").text().replace(" ", ""));
+
+        second.remove();
+        assertEquals("01", doc.getElementsByTag("a").text().replace(" ", ""));
+        assertEquals(0, doc.getElementsByClass("sale").size());
+        assertEquals(1, doc.getElementsByClass("product").size());
+
+        doc.indexElements(false);
+        assertFalse(doc.indexElements());
+        assertEquals("01", doc.getElementsByTag("a").text().replace(" ", ""));
+    }
+
     @Test public void testTitles() {
         Document noTitle = Jsoup.parse("<p>Hello</p>");
         Document withTitle = Jsoup.parse("<title>First</title><title>Ignore</title><p>Hello</p>");
@@ -62,6 +184,56 @@ public class DocumentTest {
         assertEquals("<p title=\"&pi;\">&pi; &amp; &lt; &gt; </p>", doc.body().html());
     }
 
+    @Test public void writesOuterHtmlToAppendable() throws IOException {
+        Document doc = Jsoup.parse("<title>Hi</title><p>One <b>Two</b></p><div>Three</div>");
+        StringWriter writer = new StringWriter();
+        assertSame(writer, doc.outerHtml(writer));
+        assertEquals(doc.outerHtml(), writer.toString());
+        assertEquals(doc.body().outerHtml(), doc.body().outerHtml(new StringWriter()).toString());
+        assertEquals(doc.select("p").first().outerHtml(),
+            doc.select("p").first().outerHtml(new StringBuilder("<hr>")).substring(4)); // not indented after "<hr>"
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.writeTo(out);
+        assertEquals(doc.outerHtml(), new String(out.toByteArray(), doc.outputSettings().charset()));
+
+        doc.outputSettings().prettyPrint(false);
+        assertEquals(doc.outerHtml(), doc.outerHtml(new StringWriter()).toString());
+        assertEquals(doc.body().html(), doc.body().html(new StringWriter()).toString());
+        assertEquals(doc.body().outerHtml(), doc.body().outerHtml(new StringWriter()).toString());
+    }
+
+    @Test public void writesToOutputStreamInOutputCharset() throws IOException {
+        Document doc = Jsoup.parse("<p>π</p>");
+        doc.outputSettings().prettyPrint(false);
+        doc.outputSettings().charset("ISO-8859-1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.body().writeTo(out);
+        assertEquals("<body><p>&#x3c0;</p></body>", new String(out.toByteArray(), "ISO-8859-1"));
+
+        doc.outputSettings().charset("UTF-8");
+        out.reset();
+        doc.body().child(0).writeTo(out);
+        assertEquals("<p>π</p>", new String(out.toByteArray(), "UTF-8"));
+    }
+
+    @Test public void rethrowsWriterIOException() {
+        Document doc = Jsoup.parse("<p>One</p>");
+        Writer failing = new Writer() {
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("Disk full");
+            }
+            public void flush() {}
+            public void close() {}
+        };
+        try {
+            doc.outerHtml(failing);
+            fail("Should have thrown");
+        } catch (UncheckedIOException e) {
+            assertEquals("Disk full", e.ioException().getMessage());
+        }
+    }
+
     @Test public void testXhtmlReferences() {
         Document doc = Jsoup.parse("&lt; &gt; &amp; &quot; &apos; &times;");
         doc.outputSettings().escapeMode(Entities.EscapeMode.xhtml);
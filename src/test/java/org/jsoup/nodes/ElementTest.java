@@ -850,4 +850,62 @@ public class ElementTest {
         assertEquals("http://example2.com/four/", els.get(3).absUrl("href"));
         assertEquals("https://example2.com/five/", els.get(4).absUrl("href"));
     }
+
+    @Test public void elementSiblingsTrackChildChanges() {
+        Document doc = Jsoup.parse("<div><p>One</p>Two<p>Three</p><p>Four</p></div>");
+        Element div = doc.select("div").first();
+        Element three = div.child(1);
+        assertEquals("Three", three.text());
+        assertEquals(3, div.childrenSize());
+        assertEquals(1, (int) three.elementSiblingIndex());
+
+        div.prependElement("p").text("Zero");
+        assertEquals(4, div.childrenSize());
+        assertEquals(2, (int) three.elementSiblingIndex());
+        assertEquals("One", three.previousElementSibling().text());
+        assertEquals("Four", three.nextElementSibling().text());
+
+        div.child(1).remove();
+        assertEquals(1, (int) three.elementSiblingIndex());
+        assertEquals("Zero", three.previousElementSibling().text());
+        assertEquals("Zero", three.firstElementSibling().text());
+        assertEquals("Four", three.lastElementSibling().text());
+
+        Element four = three.nextElementSibling();
+        four.replaceWith(new Element(Tag.valueOf("span"), ""));
+        assertEquals("span", three.nextElementSibling().tagName());
+        assertEquals(2, three.siblingElements().size());
+
+        div.empty();
+        assertEquals(0, div.childrenSize());
+        assertEquals(0, div.children().size());
+    }
+
+    @Test public void clonedChildrenHaveOwnSiblings() {
+        Document doc = Jsoup.parse("<div><p>One</p><p>Two</p></div>");
+        Element div = doc.select("div").first();
+        Element one = div.child(0);
+        assertEquals("Two", one.nextElementSibling().text());
+
+        Element clone = div.clone();
+        Element cloneOne = clone.child(0);
+        assertNotSame(one, cloneOne);
+        assertSame(clone, cloneOne.parent());
+        assertSame(clone.child(1), cloneOne.nextElementSibling());
+
+        clone.appendElement("p").text("Three");
+        assertEquals(3, clone.childrenSize());
+        assertEquals(2, div.childrenSize());
+        assertNull(div.child(1).nextElementSibling());
+    }
+
+    @Test public void childrenIsACopy() {
+        Document doc = Jsoup.parse("<div><p>One</p><p>Two</p></div>");
+        Element div = doc.select("div").first();
+        Elements children = div.children();
+        children.remove(0);
+        assertEquals(1, children.size());
+        assertEquals(2, div.childrenSize());
+        assertEquals("One", div.child(0).text());
+    }
 }
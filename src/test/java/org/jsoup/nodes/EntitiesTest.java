@@ -32,6 +32,18 @@ public class EntitiesTest {
         assertEquals(text, Entities.unescape(escapedUtfMin));
     }
 
+    @Test public void listsEntityNames() {
+        assertTrue(Entities.entityNames().contains("amp"));
+        assertTrue(Entities.entityNames().contains("frac13"));
+        assertFalse(Entities.entityNames().contains("bogus"));
+        for (String name : Entities.entityNames())
+            assertTrue(Entities.isNamedEntity(name));
+    }
+
+    @Test(expected = UnsupportedOperationException.class) public void entityNamesAreUnmodifiable() {
+        Entities.entityNames().remove("amp");
+    }
+
     @Test public void escapeSupplementaryCharacter(){
         String text = new String(Character.toChars(135361));
         String escapedAscii = Entities.escape(text, new OutputSettings().charset("ascii").escapeMode(base));
@@ -40,6 +52,30 @@ public class EntitiesTest {
         assertEquals(text, escapedUtf);
     }
 
+    @Test public void escapeSupplementaryCharacterWithFallbackEncoder() {
+        String text = "One " + new String(Character.toChars(135361)) + " Two";
+        String escaped = Entities.escape(text, new OutputSettings().charset("ISO-8859-1").escapeMode(base));
+        assertEquals("One &#x210c1; Two", escaped);
+    }
+
+    @Test public void escapeModeLookup() {
+        assertEquals("&amp;", Entities.EscapeMode.xhtml.escape('&'));
+        assertNull(Entities.EscapeMode.xhtml.escape('\u00e9'));
+        assertEquals("&eacute;", Entities.EscapeMode.base.escape('\u00e9'));
+        assertNull(Entities.EscapeMode.base.escape('\u03c0'));
+        assertEquals("&pi;", Entities.EscapeMode.extended.escape('\u03c0'));
+    }
+
+    @Test public void outputSettingsTracksCharset() {
+        OutputSettings out = new OutputSettings();
+        assertEquals(Entities.CoreCharset.utf, out.coreCharset());
+        out.charset("US-ASCII");
+        assertEquals(Entities.CoreCharset.ascii, out.coreCharset());
+        assertEquals(Entities.CoreCharset.ascii, out.clone().coreCharset());
+        out.charset("Shift_JIS");
+        assertEquals(Entities.CoreCharset.fallback, out.coreCharset());
+    }
+
     @Test public void unescape() {
         String text = "Hello &amp;&LT&gt; &reg &angst; &angst &#960; &#960 &#x65B0; there &! &frac34; &copy; &COPY;";
         assertEquals("Hello &<> ® Å &angst π π 新 there &! ¾ © ©", Entities.unescape(text));
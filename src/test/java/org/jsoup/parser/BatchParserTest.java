@@ -0,0 +1,141 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class BatchParserTest {
+    private static List<BatchParser.Input> inputs(int count) {
+        List<BatchParser.Input> inputs = new ArrayList<BatchParser.Input>();
+        for (int i = 0; i < count; i++) {
+            byte[] html = ("<title>Doc " + i + "</title><p>One<p>Two").getBytes();
+            inputs.add(BatchParser.Input.bytes(html, "UTF-8", "http://example.com/" + i));
+        }
+        return inputs;
+    }
+
+    @Test public void parsesInOrder() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Iterator<BatchParser.Result> results = new BatchParser(pool, 3).parse(inputs(50), true);
+            int i = 0;
+            while (results.hasNext()) {
+                BatchParser.Result result = results.next();
+                assertTrue(result.isSuccess());
+                assertEquals(i, result.index());
+                assertEquals("Doc " + i, result.document().title());
+                assertEquals("http://example.com/" + i, result.document().baseUri());
+                assertEquals(2, result.document().select("p").size());
+                i++;
+            }
+            assertEquals(50, i);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void parsesAsCompleted() {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Iterator<BatchParser.Result> results = new BatchParser(pool, 5).parse(inputs(40), false);
+            Set<String> titles = new HashSet<String>();
+            while (results.hasNext()) {
+                BatchParser.Result result = results.next();
+                assertEquals("Doc " + result.index(), result.document().title());
+                titles.add(result.document().title());
+            }
+            assertEquals(40, titles.size());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void capturesErrors() {
+        List<BatchParser.Input> inputs = new ArrayList<BatchParser.Input>();
+        inputs.add(BatchParser.Input.stream(new ByteArrayInputStream("<p>One".getBytes()), null, ""));
+        inputs.add(BatchParser.Input.file(new File("/no/such/file.html"), null, ""));
+        inputs.add(BatchParser.Input.bytes("<p>Three".getBytes(), null, ""));
+
+        Iterator<BatchParser.Result> results = new BatchParser(new DirectExecutor(), 2).parse(inputs, true);
+        assertEquals("One", results.next().document().text());
+        BatchParser.Result failed = results.next();
+        assertFalse(failed.isSuccess());
+        assertNull(failed.document());
+        assertTrue(failed.error() instanceof FileNotFoundException);
+        assertSame(inputs.get(1), failed.input());
+        assertEquals("Three", results.next().document().text());
+        assertFalse(results.hasNext());
+    }
+
+    @Test public void boundsInFlight() {
+        QueueingExecutor executor = new QueueingExecutor();
+        Iterator<BatchParser.Result> results = new BatchParser(executor, 3).parse(inputs(10), true);
+        assertTrue(results.hasNext());
+        assertEquals(3, executor.queued.size()); // nothing more is submitted until a result is consumed
+
+        executor.runAll();
+        assertEquals("Doc 0", results.next().document().title());
+        assertEquals(1, executor.queued.size()); // one more submitted, to replace the consumed result
+    }
+
+    @Test public void reusesParserPerThread() {
+        Parser parser = Parser.htmlParser().setLocalTags(true); // each thread's parser keeps the tags it has seen
+        List<BatchParser.Input> inputs = new ArrayList<BatchParser.Input>();
+        for (int i = 0; i < 3; i++)
+            inputs.add(BatchParser.Input.bytes("<x-batch>One</x-batch>".getBytes(), null, ""));
+        Iterator<BatchParser.Result> results = new BatchParser(new DirectExecutor(), 2, parser).parse(inputs, true);
+
+        Tag tag = results.next().document().body().child(0).tag();
+        assertNotSame(Tag.valueOf("x-batch"), tag); // from the thread's parser's own tags, not the shared set
+        while (results.hasNext())
+            assertSame(tag, results.next().document().body().child(0).tag());
+    }
+
+    @Test public void parsesWithTemplateKindAndSettings() {
+        Parser parser = Parser.xmlParser().setTrackErrors(10);
+        List<BatchParser.Input> inputs = new ArrayList<BatchParser.Input>();
+        inputs.add(BatchParser.Input.bytes("<One><Two/></One>".getBytes(), null, ""));
+        Iterator<BatchParser.Result> results = new BatchParser(new DirectExecutor(), 1, parser).parse(inputs, true);
+        Document doc = results.next().document();
+        assertEquals("one", doc.child(0).tagName()); // parsed as XML, so not wrapped in html and body
+        assertEquals("two", doc.child(0).child(0).tagName());
+        assertNull(parser.getErrors()); // the template parser is not used to parse
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void rejectsParserWithCustomTreeBuilder() {
+        new BatchParser(new DirectExecutor(), 1, new Parser(new HtmlTreeBuilder() {}));
+    }
+
+    private static class DirectExecutor implements Executor {
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    private static class QueueingExecutor implements Executor {
+        final List<Runnable> queued = new ArrayList<Runnable>();
+
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        void runAll() {
+            for (Runnable runnable : queued)
+                runnable.run();
+            queued.clear();
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package org.jsoup.parser;
 
+import org.jsoup.nodes.Document;
 import org.junit.Test;
 
+import java.io.StringReader;
+import java.util.Arrays;
+
 import static org.junit.Assert.*;
 
 /**
@@ -194,6 +198,22 @@ public class CharacterReaderTest {
         assertFalse(r.containsIgnoreCase("one"));
     }
 
+    @Test public void consumeToAnyScanTable() {
+        boolean[] stops = CharacterReader.scanTable('&', ';');
+        CharacterReader r = new CharacterReader("One \u00e9&bar;\u2014 qux");
+        assertEquals("One \u00e9", r.consumeToAny(stops));
+        assertEquals("", r.consumeToAny(stops));
+        assertEquals('&', r.consume());
+        assertEquals("bar", r.consumeToAny(stops));
+        assertEquals(';', r.consume());
+        assertEquals("\u2014 qux", r.consumeToAny(stops));
+        assertTrue(r.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void scanTableIsAscii() {
+        CharacterReader.scanTable('<', '\u2014');
+    }
+
     @Test public void matchesAny() {
         char[] scan = {' ', '\n', '\t'};
         CharacterReader r = new CharacterReader("One\nTwo\tThree");
@@ -244,5 +264,138 @@ public class CharacterReaderTest {
         assertFalse(r.rangeEquals(18, 5, "CHIKE"));
     }
 
+    @Test public void consumesAcrossBufferBoundaries() {
+        String in = makeInput(500);
+        CharacterReader r = new CharacterReader(new StringReader(in), CharacterReader.minBufferSize);
+        StringBuilder out = new StringBuilder();
+        while (!r.isEmpty()) {
+            out.append(r.consumeTo(';'));
+            assertEquals(out.length(), r.pos());
+            if (r.matches(';'))
+                out.append(r.consume());
+        }
+        assertEquals(in, out.toString());
+        assertEquals(CharacterReader.EOF, r.consume());
+    }
+
+    @Test public void streamedCharsMatchString() {
+        String in = makeInput(300);
+        CharacterReader r = new CharacterReader(new StringReader(in), CharacterReader.minBufferSize);
+        for (int i = 0; i < in.length(); i++) {
+            assertEquals(i, r.pos());
+            assertEquals(in.charAt(i), r.current());
+            assertEquals(in.charAt(i), r.consume());
+            r.unconsume();
+            assertEquals(in.charAt(i), r.consume());
+        }
+        assertTrue(r.isEmpty());
+    }
+
+    @Test public void markAcrossBufferBoundary() {
+        String in = makeInput(200);
+        CharacterReader r = new CharacterReader(new StringReader(in), CharacterReader.minBufferSize);
+        r.consumeTo("item 5;");
+        r.mark();
+        int markPos = r.pos();
+        for (int i = 0; i < 12; i++) // more than the readahead, so will buffer up
+            r.consume();
+        r.rewindToMark();
+        assertEquals(markPos, r.pos());
+        assertEquals("item 5;", r.consumeTo("item 6;"));
+    }
+
+    @Test public void nextIndexOfAcrossBufferBoundary() {
+        String in = makeInput(200) + "<![CDATA[end]]>";
+        CharacterReader r = new CharacterReader(new StringReader(in), CharacterReader.minBufferSize);
+        StringBuilder out = new StringBuilder();
+        while (!r.matches("<![CDATA[") && !r.isEmpty())
+            out.append(r.consumeTo("<![CDATA["));
+        assertEquals(makeInput(200), out.toString());
+        assertTrue(r.matchConsume("<![CDATA["));
+        assertEquals(3, r.nextIndexOf("]]>"));
+        assertEquals("end", r.consumeTo("]]>"));
+    }
+
+    @Test public void parsesStreamedInputSameAsString() {
+        StringBuilder html = new StringBuilder("<!DOCTYPE html><title>Stream &amp; test</title>");
+        for (int i = 0; i < 100; i++) {
+            html.append("<p class=x").append(i).append(">One &amp; two &nbsp; &#x41; <a href='?a=1&amp;b=").append(i)
+                .append("'>link</a><!-- comment ").append(i).append(" --><![CDATA[data ").append(i).append("]]></p>");
+        }
+        html.append("<script>var x = '</div>';</script><textarea>&lt;text</textarea>");
+
+        String expected = new HtmlTreeBuilder().parse(html.toString(), "http://example.com/").outerHtml();
+        Document streamed = new HtmlTreeBuilder().parse(
+            new CharacterReader(new StringReader(html.toString()), CharacterReader.minBufferSize),
+            "http://example.com/", ParseErrorList.noTracking());
+        assertEquals(expected, streamed.outerHtml());
+    }
+
+    @Test public void holdsMarkPastBufferSize() {
+        // a character reference longer than the buffer must still be rewound to
+        String html = "<p>" + repeat('x', 20000) + "&" + repeat('a', 20000) + "</p>" + repeat('z', 50000);
+        Document streamed = Parser.htmlParser().parseInput(new StringReader(html), "");
+        assertEquals(Parser.htmlParser().parseInput(html, "").outerHtml(), streamed.outerHtml());
+        assertEquals(40001, streamed.select("p").first().text().length());
+
+        String numeric = "<p>&#" + repeat('1', 40000) + ";x</p>";
+        assertEquals(Parser.htmlParser().parseInput(numeric, "").outerHtml(),
+            Parser.htmlParser().parseInput(new StringReader(numeric), "").outerHtml());
+    }
+
+    @Test public void containsIgnoreCaseSearchesPastBuffer() {
+        String html = "<textarea>x <b> y" + repeat('y', 60000) + "</textarea><p>z</p>";
+        Document streamed = Parser.htmlParser().parseInput(new StringReader(html), "");
+        assertEquals(60007, streamed.select("textarea").first().text().length());
+        assertEquals("z", streamed.select("p").text());
+
+        CharacterReader r = new CharacterReader(new StringReader("<b>" + makeInput(200) + "</TITLE>"),
+            CharacterReader.minBufferSize);
+        assertTrue(r.containsIgnoreCase("</title>"));
+        assertFalse(r.containsIgnoreCase("</style>"));
+        assertEquals("<b>", r.consumeTo("item"));
+    }
+
+    @Test public void containsIgnoreCaseStopsAtScanLimit() {
+        String far = "<a" + repeat('x', CharacterReader.maxScanAhead) + "</title>";
+        assertFalse(new CharacterReader(new StringReader(far)).containsIgnoreCase("</title>")); // too far ahead to stream
+        assertTrue(new CharacterReader(far).containsIgnoreCase("</title>")); // but a string is all in memory
+
+        String near = "<a" + repeat('x', CharacterReader.maxScanAhead / 2) + "</title>";
+        CharacterReader r = new CharacterReader(new StringReader(near));
+        assertTrue(r.containsIgnoreCase("</title>"));
+        assertEquals("<a", r.consumeTo('x'));
+        assertEquals(CharacterReader.maxScanAhead / 2, r.consumeTo('<').length());
+        assertEquals("</title>", r.consumeToEnd());
+    }
+
+    @Test public void resetReadsNewInput() {
+        CharacterReader r = new CharacterReader("One Two");
+        assertEquals("One", r.consumeTo(' '));
+        r.reset("Three");
+        assertEquals(0, r.pos());
+        assertEquals("Three", r.consumeToEnd());
+        assertTrue(r.isEmpty());
+
+        r.reset(new StringReader("Four Five"));
+        assertEquals("Four", r.consumeTo(' '));
+        r.release();
+        assertTrue(r.isEmpty());
+        r.reset("Six");
+        assertEquals("Six", r.consumeToEnd());
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static String makeInput(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++)
+            sb.append("item ").append(i).append(';');
+        return sb.toString();
+    }
 
 }
@@ -0,0 +1,54 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Entities;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EntityTrieTest {
+    private static int lookup(String name) {
+        EntityTrie trie = EntityTrie.named;
+        int node = EntityTrie.root;
+        for (int i = 0; i < name.length() && node != EntityTrie.noNode; i++)
+            node = trie.child(node, name.charAt(i));
+        return trie.value(node);
+    }
+
+    @Test public void findsNamedEntities() {
+        int amp = lookup("amp");
+        assertEquals('&', EntityTrie.character(amp));
+        assertTrue(EntityTrie.isBase(amp));
+
+        int nbsp = lookup("nbsp");
+        assertEquals('\u00a0', EntityTrie.character(nbsp));
+        assertTrue(EntityTrie.isBase(nbsp));
+
+        int frac13 = lookup("frac13");
+        assertEquals('\u2153', EntityTrie.character(frac13));
+        assertFalse(EntityTrie.isBase(frac13));
+    }
+
+    @Test public void prefixesAndUnknownsAreNotEntities() {
+        assertEquals(EntityTrie.noEntity, lookup(""));
+        assertEquals(EntityTrie.noEntity, lookup("am"));
+        assertEquals(EntityTrie.noEntity, lookup("ampx"));
+        assertEquals(EntityTrie.noEntity, lookup("zzz"));
+    }
+
+    @Test public void agreesWithEntities() {
+        for (String name : new String[]{"lt", "gt", "quot", "AMP", "Aacute", "copy", "hellip", "rarr", "there4"}) {
+            int value = lookup(name);
+            assertEquals(name, Entities.getCharacterByName(name).charValue(), EntityTrie.character(value));
+            assertEquals(name, Entities.isBaseNamedEntity(name), EntityTrie.isBase(value));
+        }
+    }
+
+    @Test public void consumesEntityNameFromReader() {
+        CharacterReader r = new CharacterReader("frac12; and &ampx");
+        assertEquals('\u00bd', EntityTrie.character(r.consumeEntityName(EntityTrie.named)));
+        assertTrue(r.matches(';'));
+        r = new CharacterReader("ampx1;");
+        assertEquals(EntityTrie.noEntity, r.consumeEntityName(EntityTrie.named));
+        assertTrue(r.matches(';')); // consumed the whole letter then digit run
+    }
+}
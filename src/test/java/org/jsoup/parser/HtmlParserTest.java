@@ -5,11 +5,13 @@ import org.jsoup.TextUtil;
 import org.jsoup.helper.StringUtil;
 import org.jsoup.integration.ParseTest;
 import org.jsoup.nodes.*;
+import org.jsoup.safety.Whitelist;
 import org.jsoup.select.Elements;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -876,4 +878,40 @@ public class HtmlParserTest {
         Document doc = Jsoup.parse(body);
         assertEquals(1, doc.body().children().size());
     }
+
+    @Test public void reusedParserResetsBetweenParses() {
+        Parser parser = Parser.htmlParser();
+        // leaves an open formatting element, a form and a head behind:
+        Document one = parser.parseInput("<title>One</title><form id=f><b><i>Bold", "http://example.com/1");
+        Document two = parser.parseInput("<p>Two", "http://example.com/2");
+        assertEquals("<b><i>Bold</i></b>", TextUtil.stripNewlines(one.select("form").first().html()));
+        assertEquals("<p>Two</p>", two.body().html());
+        assertEquals("", two.title());
+        assertEquals("http://example.com/2", two.baseUri());
+        assertEquals(Parser.parse("<p>Two", "http://example.com/2").outerHtml(), two.outerHtml());
+
+        Document streamed = parser.parseInput(new StringReader("<p>Three"), "");
+        assertEquals("<p>Three</p>", streamed.body().html());
+        assertEquals("<p>Four</p>", parser.parseInput("<p>Four", "").body().html());
+    }
+
+    @Test public void reusedParserParsesFragments() {
+        Parser parser = Parser.htmlParser();
+        parser.parseInput("<table><tr><td>One", "");
+        List<Node> nodes = parser.parseFragmentInput("<td>Two", new Element(Tag.valueOf("tr"), ""), "");
+        assertEquals(1, nodes.size());
+        assertEquals("<td>Two</td>", nodes.get(0).outerHtml());
+
+        nodes = Parser.xmlParser().parseFragmentInput("<one>Three</one><two/>", null, "");
+        assertEquals(2, nodes.size());
+        assertEquals("two", ((Element) nodes.get(1)).tagName());
+    }
+
+    @Test public void staticParseReusesBuilderSafely() {
+        for (int i = 0; i < 3; i++) {
+            Document doc = Jsoup.parseBodyFragment("<a href=/" + i + ">Link " + i);
+            assertEquals("<a href=\"/" + i + "\">Link " + i + "</a>", doc.body().html());
+            assertEquals("Link " + i, Jsoup.clean("<script>x</script><b>Link " + i, Whitelist.none()));
+        }
+    }
 }
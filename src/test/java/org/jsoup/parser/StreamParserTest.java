@@ -0,0 +1,242 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.TextUtil;
+import org.jsoup.integration.ParseTest;
+import org.jsoup.nodes.*;
+import org.jsoup.parser.StreamParser.Event;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for the StreamParser.
+ */
+public class StreamParserTest {
+
+    @Test public void eventsRebuildSameTreeAsParse() {
+        String[] inputs = {
+            "<!DOCTYPE html><html><head><title>One</title></head><body><p>Two <b>three</b></p><!-- four --></body></html>",
+            "<p>One<p>Two<div>Three",
+            "<b><p>One</b>Two</p>Three", // adoption agency
+            "<p><b>One</p>Two", // formatting reconstruction
+            "<a href=1>One<div>Two</a>Three</div>",
+            "<table><tr><td>One</td></tr><div>Fostered</div><tr><td>Two</td></table>After",
+            "<table><b>Bold<tr><td>Cell</td></tr></table>",
+            "<html><head></head><meta charset=utf8><title>Late</title><body>Body",
+            "<form><div>One</form>Two</div>Three",
+            "<script>if (a < b) { c(); }</script><style>p { }</style><textarea>&lt;Text</textarea>",
+            "<frameset><frame src=foo></frameset>",
+            "Just text",
+            ""
+        };
+        for (String html : inputs) {
+            String expected = Jsoup.parse(html, "http://example.com/").outerHtml();
+            assertEquals(html, expected, rebuild(new StreamParser(html, "http://example.com/")).outerHtml());
+        }
+    }
+
+    @Test public void bodyFragmentEventsRebuildSameNodesAsParse() {
+        String[] inputs = {
+            "<p>One<p>Two<div>Three",
+            "<title>Title</title><b><p>One</b>Two</p>Three",
+            "<td>Cell</td><tr><td>Row</td></tr>",
+            "<table><tr><td>One</td></tr><div>Fostered</div></table>After<!-- c -->",
+            "<html lang=en><body class=b>Text</body></html>",
+            ""
+        };
+        for (String html : inputs) {
+            String expected = Jsoup.parseBodyFragment(html, "http://example.com/").body().html();
+            Document rebuilt = rebuild(StreamParser.bodyFragment(html, "http://example.com/"));
+            assertEquals(html, expected, rebuilt.html());
+        }
+        Document read = rebuild(StreamParser.bodyFragment(new StringReader("<p>One<p>Two"), ""));
+        assertEquals("<p>One</p><p>Two</p>", TextUtil.stripNewlines(read.html()));
+    }
+
+    @Test public void eventsRebuildRealWorldDocument() throws IOException {
+        File in = ParseTest.getFile("/htmltests/news-com-au-home.html");
+        Document doc = Jsoup.parse(in, "UTF-8", "http://www.news.com.au/");
+        String html = Jsoup.parse(in, "UTF-8").outerHtml(); // normalises the input, so ends the same after a re-parse
+
+        Document rebuilt = rebuild(new StreamParser(new StringReader(html), "http://www.news.com.au/"));
+        assertEquals(Jsoup.parse(html, "http://www.news.com.au/").outerHtml(), rebuilt.outerHtml());
+        assertEquals(doc.select("a").size(), rebuilt.select("a").size());
+    }
+
+    @Test public void detachesCompletedNodes() {
+        StringBuilder html = new StringBuilder("<div>");
+        for (int i = 0; i < 500; i++)
+            html.append("<p>Para ").append(i).append(" <a href=").append(i).append(">link</a></p>");
+
+        final int[] maxHeld = {0};
+        final int[] count = {0};
+        new StreamParser(html.toString(), "").parse(new Rebuilder() {
+            @Override public void startElement(Element element) {
+                super.startElement(element);
+                if (element.tagName().equals("p")) {
+                    count[0]++;
+                    Document held = element.ownerDocument();
+                    if (held != null)
+                        maxHeld[0] = Math.max(maxHeld[0], held.select("p").size());
+                }
+            }
+        });
+        assertEquals(500, count[0]);
+        assertTrue(maxHeld[0] <= 2);
+    }
+
+    @Test public void holdsBodyWhileFramesetCanReplaceIt() {
+        // the body and its div are held back until the frameset replaces them, so are not reported
+        StreamParser parser = new StreamParser("<div></div><frameset></frameset>", "");
+        StringBuilder events = new StringBuilder();
+        while (parser.hasNext())
+            events.append(parser.next()).append("; ");
+        assertEquals("StartElement html; StartElement head; EndElement head; StartElement frameset; " +
+            "EndElement frameset; EndElement html; ", events.toString());
+
+        parser = new StreamParser("<div>One</div><frameset></frameset><p>Two", "");
+        assertEquals("html", parser.next().node().nodeName());
+        assertEquals("head", parser.next().node().nodeName());
+        assertEquals("head", parser.next().node().nodeName());
+        assertEquals("body", parser.next().node().nodeName()); // text rules out the frameset, so body starts
+    }
+
+    @Test public void pullsEvents() {
+        StreamParser parser = new StreamParser("<!doctype html><p class=one>Hello <!-- c --><br>there</p>", "");
+        List<String> events = new ArrayList<String>();
+        while (parser.hasNext()) {
+            Event event = parser.next();
+            if (event.type() == Event.Type.Text)
+                events.add(((TextNode) event.node()).text());
+            else
+                events.add(event.toString());
+        }
+        assertEquals("[Doctype #doctype, StartElement html, StartElement head, EndElement head, StartElement body, " +
+            "StartElement p, Hello , Comment #comment, StartElement br, EndElement br, there, EndElement p, " +
+            "EndElement body, EndElement html]", events.toString());
+        assertFalse(parser.hasNext());
+    }
+
+    @Test public void pushesAfterPull() {
+        StreamParser parser = new StreamParser("<p>One</p><p>Two</p>", "");
+        Event first = parser.next();
+        assertEquals(Event.Type.StartElement, first.type());
+        assertEquals("html", first.node().nodeName());
+
+        Rebuilder rebuilder = new Rebuilder();
+        first.send(rebuilder);
+        parser.parse(rebuilder);
+        assertEquals("<html><head></head><body><p>One</p><p>Two</p></body></html>",
+            TextUtil.stripNewlines(rebuilder.doc.html()));
+        assertFalse(parser.hasNext());
+    }
+
+    @Test public void selectsMatchingElements() {
+        String html = "<html><head><meta property=og:title content=One><meta name=x content=y><title>T</title></head>" +
+            "<body><div class=nav><a href=/1>One</a> <a>No href</a></div>" +
+            "<div class=article><p>Para <a href=/2>Two <b>bold</b></a></p><p>Second</p></div></body></html>";
+        Document doc = Jsoup.parse(html, "http://example.com/");
+        String[] queries = {"meta[property], a[href]", "div.article", "div.article a", "div.article, div.article p:has(a)", "a[href]:eq(0)", "p:empty"};
+        for (String query : queries) {
+            Elements expected = doc.select(query);
+            Elements selected = new StreamParser(html, "http://example.com/").select(query);
+            assertEquals(query, expected.size(), selected.size());
+            for (int i = 0; i < expected.size(); i++)
+                assertEquals(query, expected.get(i).outerHtml(), selected.get(i).outerHtml());
+        }
+    }
+
+    @Test public void selectsStructuralSelectorsAsFullParse() {
+        String html = "<ul><li>One</li><li>Two</li><li>Three</li></ul><p>x</p><p>y</p><h2>H</h2><p class=a>z</p>" +
+            "<ol><li><a href=1>1</a></li><li><a href=2>2</a></li></ol>";
+        Document doc = Jsoup.parse(html);
+        String[] queries = {"li:nth-child(2)", "p:last-child", "p:only-of-type", "p:first-of-type", "li:last-child a",
+            "h2 + p", "h2 ~ p", "p:nth-of-type(2)", "li:first-child", "ul li:only-child", "a:eq(0)", "li:gt(0)", "p:lt(1)"};
+        for (String query : queries) {
+            Elements expected = doc.select(query);
+            Elements selected = new StreamParser(html, "").select(query);
+            assertEquals(query, expected.size(), selected.size());
+            for (int i = 0; i < expected.size(); i++)
+                assertEquals(query, expected.get(i).outerHtml(), selected.get(i).outerHtml());
+        }
+    }
+
+    @Test public void selectKeepsAncestorsButDropsOtherContent() {
+        Elements links = new StreamParser("<div id=1><p>One</p><p><a href=/>Two</a></p><p>Three</p></div>", "").select("a");
+        assertEquals(1, links.size());
+        Element a = links.first();
+        assertEquals("Two", a.text());
+        assertEquals("p", a.parent().tagName());
+        assertEquals("1", a.parent().parent().id());
+        assertEquals("<p><a href=\"/\">Two</a></p>", TextUtil.stripNewlines(a.parent().parent().html()));
+    }
+
+    @Test public void selectsFromRealWorldDocument() throws IOException {
+        File in = ParseTest.getFile("/htmltests/smh-biz-article-1.html");
+        Document doc = Jsoup.parse(in, "UTF-8", "http://www.smh.com.au/");
+        Elements expected = doc.select("a[href], meta[name], .articleBody > p");
+
+        Reader reader = new InputStreamReader(new FileInputStream(in), "UTF-8");
+        Elements selected;
+        try {
+            selected = new StreamParser(reader, "http://www.smh.com.au/").select("a[href], meta[name], .articleBody > p");
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected.size(), selected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).outerHtml(), selected.get(i).outerHtml());
+            assertEquals(expected.get(i).absUrl("href"), selected.get(i).absUrl("href"));
+        }
+    }
+
+    private static Document rebuild(StreamParser parser) {
+        Rebuilder rebuilder = new Rebuilder();
+        parser.parse(rebuilder);
+        return rebuilder.doc;
+    }
+
+    // reconstructs a document from the events, to compare against a normal parse
+    private static class Rebuilder implements ParseEventHandler {
+        final Document doc = new Document("http://example.com/");
+        Element current = doc;
+
+        public void startElement(Element element) {
+            Element el = new Element(element.tag(), element.baseUri(), element.attributes().clone());
+            current.appendChild(el);
+            current = el;
+        }
+
+        public void endElement(Element element) {
+            assertEquals(current.tagName(), element.tagName());
+            current = current.parent();
+        }
+
+        public void text(TextNode text) {
+            current.appendChild(new TextNode(text.getWholeText(), text.baseUri()));
+        }
+
+        public void data(DataNode data) {
+            current.appendChild(new DataNode(data.getWholeData(), data.baseUri()));
+        }
+
+        public void comment(Comment comment) {
+            current.appendChild(new Comment(comment.getData(), comment.baseUri()));
+        }
+
+        public void doctype(DocumentType doctype) {
+            current.appendChild(doctype.clone());
+        }
+    }
+}
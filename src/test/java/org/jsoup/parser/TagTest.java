@@ -1,6 +1,11 @@
 package org.jsoup.parser;
 
+import org.jsoup.nodes.Document;
 import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.Assert.*;
 
 /**
@@ -57,6 +62,50 @@ public class TagTest {
         assertTrue(foo.formatAsBlock());
     }
 
+    @Test public void internsUnknownTags() {
+        Tag widget = Tag.valueOf("my-widget");
+        assertSame(widget, Tag.valueOf("my-widget"));
+        assertSame(widget, Tag.valueOf(" MY-Widget "));
+        assertFalse(widget.isKnownTag());
+    }
+
+    @Test public void internSetHoldsEachTagOnceAndStopsWhenFull() {
+        Map<String, Tag> internSet = new HashMap<String, Tag>();
+        Tag one = Tag.valueOf("X-One", internSet, 2);
+        assertSame(one, Tag.valueOf("x-one", internSet, 2));
+        assertSame(one, Tag.valueOf(" X-ONE ", internSet, 2));
+        assertEquals(1, internSet.size());
+
+        Tag two = Tag.valueOf("x-two", internSet, 2);
+        assertSame(two, Tag.valueOf("X-Two", internSet, 2));
+        assertEquals(2, internSet.size());
+
+        Tag three = Tag.valueOf("x-three", internSet, 2); // full: not interned
+        assertNotSame(three, Tag.valueOf("x-three", internSet, 2));
+        assertEquals(three, Tag.valueOf("x-three", internSet, 2));
+        assertEquals(2, internSet.size());
+        assertSame(one, Tag.valueOf("x-one", internSet, 2));
+    }
+
+    @Test public void selfClosingUnknownTagIsNotShared() {
+        Document doc = Parser.xmlParser().parseInput("<amp-img /><amp-img></amp-img>", "");
+        Tag closed = doc.child(0).tag();
+        Tag open = doc.child(1).tag();
+        assertTrue(closed.isSelfClosing());
+        assertFalse(open.isSelfClosing());
+        assertFalse(Tag.valueOf("amp-img").isSelfClosing());
+        assertEquals("<amp-img /><amp-img></amp-img>", doc.html().replace("\n", ""));
+    }
+
+    @Test public void localTagSet() {
+        Parser parser = Parser.htmlParser().setLocalTags(true);
+        Document doc = parser.parseInput("<x-local>One</x-local><X-LOCAL>Two</X-LOCAL>", "");
+        Tag one = doc.body().child(0).tag();
+        assertSame(one, doc.body().child(1).tag());
+        assertSame(one, parser.parseInput("<x-local>Three</x-local>", "").body().child(0).tag());
+        assertSame(Tag.valueOf("p"), parser.parseInput("<p>Four", "").body().child(0).tag());
+    }
+
     @Test(expected = IllegalArgumentException.class) public void valueOfChecksNotNull() {
         Tag.valueOf(null);
     }
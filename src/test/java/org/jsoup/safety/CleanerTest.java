@@ -2,9 +2,15 @@ package org.jsoup.safety;
 
 import org.jsoup.Jsoup;
 import org.jsoup.TextUtil;
+import org.jsoup.integration.ParseTest;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Entities;
 import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import static org.junit.Assert.*;
 
 /**
@@ -242,4 +248,143 @@ public class CleanerTest {
         whitelist.addTags( "script" );
         assertTrue( Jsoup.isValid("Hello<script>alert('Doh')</script>World !", whitelist ) );
     }
+
+    @Test public void streamingCleanMatchesDocumentClean() {
+        Whitelist scripts = Whitelist.relaxed().addTags("script").addEnforcedAttribute("a", "rel", "nofollow");
+        Whitelist body = Whitelist.relaxed().addTags("body").addAttributes("body", "class")
+            .addEnforcedAttribute("body", "dir", "ltr");
+        Whitelist[] whitelists = {Whitelist.none(), Whitelist.simpleText(), Whitelist.basic(), Whitelist.relaxed(),
+            Whitelist.basicWithImages(), scripts, body, Whitelist.relaxed().addTags("body").compile()};
+        String[] inputs = {
+            "<div><p class=foo><a href='http://evil.com' onclick=x()>Hello <b id=bar>there</b>!</a></div>",
+            "<p>One<br>Two<img src='/foo.png' alt=x><hr> Three &amp; &lt; &quot;",
+            "<table><tr><td>One<td>Two</table><b><i>Mis</b>nested</i> <p><b>Bold",
+            "Hello<script>alert('Doh')</script><style>p {}</style><!-- comment --><textarea>a < b</textarea>",
+            "<a href='relative.html' title='\"Q\"'>Link</a><foo/>Unknown<foo>Content</foo><br/>",
+            "<title>T</title><ul><li>One<li>Two</ul><blockquote cite=http://example.com/>Quote",
+            "<div class=z onclick=x><style>p{}</style></blockquote><frameset></b>", // frameset replaces the div
+            "<p>x</p><frameset><frame src=foo></frameset>", // but not once there's text
+            "<body class=b>One</body><body id=c>Two",
+            ""
+        };
+        Document.OutputSettings settings = new Document.OutputSettings().prettyPrint(false);
+        for (Whitelist whitelist : whitelists) {
+            for (String input : inputs) {
+                String expected = Jsoup.clean(input, "http://example.com/", whitelist, settings);
+                StringBuilder streamed = new StringBuilder();
+                boolean valid = new Cleaner(whitelist).clean(input, "http://example.com/", streamed);
+                assertEquals(expected, streamed.toString());
+                assertEquals(Jsoup.isValid(input, whitelist), valid);
+            }
+        }
+    }
+
+    @Test public void streamingCleanUsesOutputSettings() {
+        StringBuilder out = new StringBuilder();
+        Document.OutputSettings settings = new Document.OutputSettings().escapeMode(Entities.EscapeMode.extended)
+            .syntax(Document.OutputSettings.Syntax.xml);
+        assertFalse(new Cleaner(Whitelist.basicWithImages()).clean("<img src=http://example.com/a.png onerror=x>\u00a0", "", out, settings));
+        assertEquals("<img src=\"http://example.com/a.png\" />&nbsp;", out.toString());
+    }
+
+    @Test public void compiledWhitelistCleansSameAsSource() {
+        Whitelist custom = Whitelist.relaxed()
+            .addAttributes(":all", "class", "title")
+            .addAttributes("a", "class")
+            .addProtocols("a", "href", "#")
+            .addEnforcedAttribute("a", "rel", "nofollow")
+            .addEnforcedAttribute("img", "loading", "lazy");
+        Whitelist[] whitelists = {Whitelist.none(), Whitelist.simpleText(), Whitelist.basic(),
+            Whitelist.basicWithImages(), Whitelist.relaxed(), custom, Whitelist.basic().preserveRelativeLinks(true)};
+        String[] inputs = {
+            "<div class=c title=t><p class=foo><a href='http://evil.com' onclick=x() class=l>Hello <b id=bar>there</b>!</a></div>",
+            "<a href='#anchor'>In page</a> <a href='# bad'>Bad</a> <a href='javascript:x()'>Js</a> <a href='HTTP://Nice.com'>Up</a>",
+            "<a href='/relative'>Rel</a><img src='/foo.png' alt=x title=y><blockquote cite='ftp://x'>Q</blockquote>",
+            "<table class=t summary=s><tr><td colspan=2 class=c>Cell</table><span title=t>Span</span>"
+        };
+        for (Whitelist whitelist : whitelists) {
+            Whitelist compiled = whitelist.compile();
+            assertSame(compiled, compiled.compile());
+            for (String input : inputs) {
+                assertEquals(Jsoup.clean(input, "http://example.com/", whitelist),
+                    Jsoup.clean(input, "http://example.com/", compiled));
+                assertEquals(Jsoup.isValid(input, whitelist), Jsoup.isValid(input, compiled));
+            }
+        }
+    }
+
+    @Test public void compiledWhitelistIsImmutable() {
+        Whitelist source = Whitelist.basic();
+        Whitelist compiled = source.compile();
+        source.addTags("div"); // doesn't affect the compiled copy
+        assertEquals("One", Jsoup.clean("<div>One</div>", compiled));
+
+        try {
+            compiled.addTags("div");
+            fail("Compiled whitelist should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            compiled.removeProtocols("a", "href", "http");
+            fail("Compiled whitelist should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void doesNotCompileSubclass() {
+        new Whitelist() {
+            @Override
+            protected boolean isSafeTag(String tag) {
+                return true;
+            }
+        }.compile();
+    }
+
+    @Test public void validationMatchesCleanDiscards() {
+        Whitelist[] whitelists = {Whitelist.none(), Whitelist.simpleText(), Whitelist.basic(), Whitelist.relaxed(),
+            Whitelist.relaxed().addTags("script"), Whitelist.relaxed().addTags("body").addAttributes("body", "class")};
+        String[] inputs = {
+            "Just text", "<b>Bold</b> <i>it</i>", "<p onclick=x()>Para", "<a href='http://example.com/'>Link</a>",
+            "<a href='javascript:x()'>Link</a>", "<a href='/rel'>Rel</a>", "Hello<script>alert('Doh')</script>World",
+            "Hello<!-- comment -->World", "<div><p>One</div><table><tr><td>Two</table>", "<img src=http://x/y.png>",
+            "<td><p><h1></p><body bgcolor=red><tr>", ""
+        };
+        for (Whitelist whitelist : whitelists) {
+            Cleaner cleaner = new Cleaner(whitelist);
+            for (String input : inputs)
+                assertEquals(input, cleaner.isValid(Jsoup.parseBodyFragment(input, "")), cleaner.isValidBodyHtml(input));
+        }
+
+        Cleaner basic = new Cleaner(Whitelist.basic());
+        assertTrue(basic.isValidBodyHtml("<b>Bold</b> <a href='http://example.com/'>Link</a>"));
+        assertFalse(basic.isValidBodyHtml("<a href='javascript:x()'>Link</a>"));
+        assertFalse(basic.isValidBodyHtml("<p onclick=x()>Para"));
+        assertFalse(basic.isValidBodyHtml("Hello<!-- comment -->World"));
+        assertFalse(basic.isValidBodyHtml("<div><p>One</div>"));
+        assertTrue(new Cleaner(Whitelist.relaxed().addTags("script")).isValidBodyHtml("Hello<script>x()</script>"));
+        assertFalse(Jsoup.isValid("<td><p><h1></p><body bgcolor=red><tr>", Whitelist.relaxed())); // merged attribute
+    }
+
+    @Test public void parallelCleanMatchesSequential() throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Document big = Jsoup.parse(ParseTest.getFile("/htmltests/news-com-au-home.html"), "UTF-8",
+                "http://www.news.com.au/");
+            String[] inputs = {"<p>One<p>Two<script>x</script><a href=/rel onclick=y>Three</a><!-- c --> Four",
+                "<div>Only child</div>", "Text", ""};
+            Whitelist bodyAllowed = Whitelist.relaxed().addAttributes("body", "class");
+            for (Whitelist whitelist : new Whitelist[]{Whitelist.basic(), Whitelist.relaxed(), bodyAllowed}) {
+                Cleaner cleaner = new Cleaner(whitelist);
+                assertEquals(cleaner.clean(big).outerHtml(), cleaner.clean(big, pool).outerHtml());
+                for (String input : inputs) {
+                    Document dirty = Jsoup.parse("<body class=b>" + input, "http://example.com/");
+                    assertEquals(cleaner.clean(dirty).outerHtml(), cleaner.clean(dirty, pool).outerHtml());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
@@ -34,6 +34,127 @@ public class SelectorTest {
         assertEquals(0, none.size());
     }
 
+    @Test public void testByIdUnderRoot() {
+        Document doc = Jsoup.parse("<div id=1><p id=foo class=a>One</p></div><div id=2><p id=foo>Two</p><span id=foo>Three</span></div>");
+        Element two = doc.getElementById("2");
+        Elements els = two.select("#foo");
+        assertEquals(2, els.size());
+        assertEquals("Two", els.get(0).text());
+        assertEquals("Three", els.get(1).text());
+
+        assertEquals("Three", doc.select("span#foo").text());
+        assertEquals("One", doc.select("#foo.a").text());
+        assertEquals(0, two.select("#1").size());
+
+        two.child(0).attr("id", "bar");
+        assertEquals(2, doc.select("#foo").size());
+        assertEquals("Two", doc.select("#bar").text());
+    }
+
+    @Test public void indexedSelectsMatchUnindexed() {
+        String html = "<div class=product id=p1><p><a class=price href=1>1</a></p></div><div class='product sale'>" +
+            "<a class=price>2</a><span class=price>3</span><a>4</a></div><p class=price>5</p>";
+        String[] queries = {"div.product a.price", "a", ".price", "div > a", "#p1 a", "span.price, p.price",
+            "div.sale *", "a.price:eq(0)", "p", ".none", "a:not(.price)"};
+        Document doc = Jsoup.parse(html);
+        Document indexed = Jsoup.parse(html);
+        indexed.indexElements(true);
+
+        for (int round = 0; round < 2; round++) {
+            for (String query : queries) {
+                assertEquals(query, doc.select(query).outerHtml(), indexed.select(query).outerHtml());
+                Element div = doc.select("div").last();
+                Element indexedDiv = indexed.select("div").last();
+                assertEquals(query, div.select(query).outerHtml(), indexedDiv.select(query).outerHtml());
+            }
+            if (round > 0)
+                break;
+            // modify both documents the same way, and query again
+            for (Document d : new Document[] {doc, indexed}) {
+                d.select("span").first().tagName("a");
+                d.select("div").first().prependElement("a").addClass("price").text("0");
+                d.select("p.price").remove();
+            }
+        }
+    }
+
+    @Test public void compiledSelectorSelectsFromManyRoots() {
+        Selector selector = Selector.compile(" div > p.one ");
+        assertEquals("div > p.one", selector.toString());
+        assertSame(selector, Selector.compile("div > p.one")); // cached
+
+        Document one = Jsoup.parse("<div><p class=one>One</p><p>Two</p></div>");
+        Document two = Jsoup.parse("<div><p class=one>Three</p></div><div><p class=one>Four</p></div>");
+        assertEquals("One", selector.select(one).text());
+        assertEquals("Three Four", selector.select(two).text());
+        assertEquals("Three Four", selector.select(two.select("div")).text());
+        assertEquals("Four", selector.select(two.select("div").last()).text());
+    }
+
+    @Test public void compiledSelectorCacheKeepsQueriesInUse() {
+        Selector hot = Selector.compile("div.hot > p");
+        for (int i = 0; i < 2000; i++) {
+            Selector.compile("#dynamic-" + i); // one-off queries, past the cache size
+            assertSame(hot, Selector.compile("div.hot > p"));
+        }
+    }
+
+    @Test(expected = Selector.SelectorParseException.class) public void compileThrowsOnInvalidQuery() {
+        Selector.compile("div:nth-child(x)");
+    }
+
+    @Test public void structuralSelectsOnDeepTrees() {
+        StringBuilder html = new StringBuilder();
+        int depth = 200;
+        for (int i = 0; i < depth; i++)
+            html.append("<div class=d").append(i % 3).append("><p>").append(i).append("</p><span>s</span><i>x</i>");
+        Document doc = Jsoup.parse(html.toString());
+
+        assertEquals(depth, doc.select("div p").size());
+        assertEquals(depth - 1, doc.select("div div > p").size());
+        assertEquals(depth / 3, doc.select(".d2 > p").size());
+        assertEquals(depth - 1, doc.select("div:has(div)").size());
+        assertEquals(depth, doc.select("div:has(p)").size());
+        assertEquals(depth - 2, doc.select("div:has(.d2 > i)").size()); // the last d2 is the 198th div
+        assertEquals(depth, doc.select("p ~ i").size());
+        assertEquals(0, doc.select("i ~ p").size());
+        assertEquals(depth, doc.select("p + span").size());
+        assertEquals("0", doc.select("body > div > p").text());
+
+        Element inner = doc.select("div").get(depth - 2);
+        assertEquals(2, inner.select("div p").size());
+        assertEquals(1, inner.select("div div p").size());
+        assertEquals(1, inner.select("div:has(div)").size());
+    }
+
+    @Test public void selectFirst() {
+        Document doc = Jsoup.parse("<div><p class=a>One</p><div><p class=b>Two</p></div></div><p class=b>Three</p>");
+        assertEquals("Two", doc.selectFirst("p.b").text());
+        assertEquals("One", doc.selectFirst("p").text());
+        assertEquals("Two", doc.selectFirst("div div p").text());
+        assertEquals("Three", doc.selectFirst("body > p").text());
+        assertNull(doc.selectFirst("span"));
+        assertEquals("Two", doc.select("div").last().selectFirst("p").text());
+        assertEquals("div", doc.selectFirst("div:has(p.b)").tagName());
+
+        doc.indexElements(true);
+        assertEquals("Two", doc.selectFirst(".b").text());
+        assertEquals("Three", doc.selectFirst("body > .b").text());
+
+        Element detached = doc.select("div").first().clone();
+        assertEquals("Two", detached.selectFirst(".b").text());
+        assertEquals("One", detached.selectFirst("div > p").text());
+        assertEquals("Two", detached.selectFirst("div div > p").text());
+    }
+
+    @Test public void matchesAny() {
+        Document doc = Jsoup.parse("<div><p class=a>One</p></div>");
+        assertTrue(doc.matchesAny("div p.a"));
+        assertTrue(doc.matchesAny("p:contains(one)"));
+        assertFalse(doc.matchesAny("p.b"));
+        assertFalse(doc.select("p").first().matchesAny("div"));
+    }
+
     @Test public void testByClass() {
         Elements els = Jsoup.parse("<p id=0 class='one two'><p id=1 class='one'><p id=2 class='two'>").select("p.one");
         assertEquals(2, els.size());
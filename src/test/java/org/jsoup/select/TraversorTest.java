@@ -0,0 +1,111 @@
+package org.jsoup.select;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter.FilterResult;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TraversorTest {
+    @Test public void filterVisitsAllNodes() {
+        Document doc = Jsoup.parse("<div><p>Hello</p></div><div>There</div>");
+        final StringBuilder accum = new StringBuilder();
+        FilterResult result = NodeTraversor.filter(new NodeFilter() {
+            public FilterResult head(Node node, int depth) {
+                accum.append("<").append(node.nodeName()).append(">");
+                return FilterResult.Continue;
+            }
+
+            public FilterResult tail(Node node, int depth) {
+                accum.append("</").append(node.nodeName()).append(">");
+                return FilterResult.Continue;
+            }
+        }, doc.body());
+        assertEquals(FilterResult.Continue, result);
+        assertEquals("<body><div><p><#text></#text></p></div><div><#text></#text></div></body>", accum.toString());
+    }
+
+    @Test public void filterSkipChildren() {
+        Document doc = Jsoup.parse("<div><p>Hello</p></div><div>There</div>");
+        final StringBuilder accum = new StringBuilder();
+        NodeTraversor.filter(new NodeFilter() {
+            public FilterResult head(Node node, int depth) {
+                accum.append("<").append(node.nodeName()).append(">");
+                // OMIT contents of p:
+                return ("p".equals(node.nodeName())) ? FilterResult.SkipChildren : FilterResult.Continue;
+            }
+
+            public FilterResult tail(Node node, int depth) {
+                accum.append("</").append(node.nodeName()).append(">");
+                return FilterResult.Continue;
+            }
+        }, doc.body());
+        assertEquals("<body><div><p></p></div><div><#text></#text></div></body>", accum.toString());
+    }
+
+    @Test public void filterSkipEntirely() {
+        Document doc = Jsoup.parse("<div><p>Hello</p></div><div>There</div>");
+        final StringBuilder accum = new StringBuilder();
+        NodeTraversor.filter(new NodeFilter() {
+            public FilterResult head(Node node, int depth) {
+                // OMIT p:
+                if ("p".equals(node.nodeName()))
+                    return FilterResult.SkipEntirely;
+                accum.append("<").append(node.nodeName()).append(">");
+                return FilterResult.Continue;
+            }
+
+            public FilterResult tail(Node node, int depth) {
+                accum.append("</").append(node.nodeName()).append(">");
+                return FilterResult.Continue;
+            }
+        }, doc.body());
+        assertEquals("<body><div></div><div><#text></#text></div></body>", accum.toString());
+    }
+
+    @Test public void filterStop() {
+        Document doc = Jsoup.parse("<div><p>Hello</p></div><div>There</div>");
+        final StringBuilder accum = new StringBuilder();
+        FilterResult result = NodeTraversor.filter(new NodeFilter() {
+            public FilterResult head(Node node, int depth) {
+                accum.append("<").append(node.nodeName()).append(">");
+                return FilterResult.Continue;
+            }
+
+            public FilterResult tail(Node node, int depth) {
+                accum.append("</").append(node.nodeName()).append(">");
+                // Stop after p.
+                return ("p".equals(node.nodeName())) ? FilterResult.Stop : FilterResult.Continue;
+            }
+        }, doc.body());
+        assertEquals(FilterResult.Stop, result);
+        assertEquals("<body><div><p><#text></#text></p>", accum.toString());
+    }
+
+    @Test public void filterLeafRoot() {
+        TextNode text = new TextNode("Hello", "");
+        final StringBuilder accum = new StringBuilder();
+        NodeTraversor.filter(new NodeFilter() {
+            public FilterResult head(Node node, int depth) {
+                accum.append("<").append(node.nodeName()).append(depth).append(">");
+                return FilterResult.Continue;
+            }
+
+            public FilterResult tail(Node node, int depth) {
+                accum.append("</").append(node.nodeName()).append(depth).append(">");
+                return FilterResult.Continue;
+            }
+        }, text);
+        assertEquals("<#text0></#text0>", accum.toString());
+    }
+
+    @Test public void textSkipsData() {
+        Document doc = Jsoup.parse("<div>One<script>var two;</script><style>p {}</style> Three</div>");
+        Element div = doc.select("div").first();
+        assertEquals("One Three", div.text());
+    }
+}